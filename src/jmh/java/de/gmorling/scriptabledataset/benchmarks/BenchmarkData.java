@@ -0,0 +1,251 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset.benchmarks;
+
+import de.gmorling.scriptabledataset.EvaluationMode;
+import de.gmorling.scriptabledataset.ScriptableDataSetConfig;
+import de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.script.ScriptEngine;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * Generates the data sets used by the benchmarks.
+ */
+final class BenchmarkData {
+
+    /** The literal used for non-scripted fields. */
+    static final String LITERAL = "Webster Street";
+
+    /** The columns of generated tables. */
+    static final Column[] COLUMNS = { new Column("ID", DataType.INTEGER), new Column("NUM", DataType.INTEGER),
+            new Column("ADDR", DataType.VARCHAR), new Column("NOTE", DataType.VARCHAR) };
+
+    /**
+     * Instantiates a new benchmark data.
+     */
+    private BenchmarkData() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * Gets the prefix used for a language.
+     *
+     * @param language
+     *            the language
+     *
+     * @return the prefix
+     */
+    static String prefix(String language) {
+        return language + ":";
+    }
+
+    /**
+     * Gets a numeric script in the given language.
+     *
+     * @param language
+     *            the language
+     *
+     * @return the script, including prefix
+     */
+    static String numericScript(String language) {
+        return prefix(language) + "12/2";
+    }
+
+    /**
+     * Gets a string script in the given language.
+     *
+     * @param language
+     *            the language
+     *
+     * @return the script, including prefix
+     */
+    static String stringScript(String language) {
+        switch (language) {
+            case "groovy":
+                return prefix(language) + "'Webster Street'.reverse()";
+            case "graal.js":
+                return prefix(language) + "'Webster Street'.split('').reverse().join('')";
+            default:
+                return prefix(language) + "'Webster Street'.reverse";
+        }
+    }
+
+    /**
+     * Creates a configuration for the given language with a number of handlers, that don't do anything.
+     *
+     * @param language
+     *            the language
+     * @param handlerCount
+     *            the number of handlers
+     *
+     * @return the configuration
+     */
+    static ScriptableDataSetConfig config(String language, int handlerCount) {
+        return config(language, handlerCount, EvaluationMode.ON_ACCESS);
+    }
+
+    /**
+     * Creates a configuration for the given language and evaluation mode with a number of handlers, that don't do
+     * anything.
+     *
+     * @param language
+     *            the language
+     * @param handlerCount
+     *            the number of handlers
+     * @param evaluationMode
+     *            the evaluation mode
+     *
+     * @return the configuration
+     */
+    static ScriptableDataSetConfig config(String language, int handlerCount, EvaluationMode evaluationMode) {
+        List<ScriptInvocationHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < handlerCount; i++) {
+            handlers.add(new NoOpHandler(language));
+        }
+        return ScriptableDataSetConfig.builder(language, prefix(language)).handlers(handlers)
+                .evaluationMode(evaluationMode).build();
+    }
+
+    /**
+     * Creates a table with two scripted and two literal columns.
+     *
+     * @param tableName
+     *            the table name
+     * @param language
+     *            the language of the scripts
+     * @param rowCount
+     *            the row count
+     *
+     * @return the table
+     *
+     * @throws DataSetException
+     *             if the table can't be created
+     */
+    static ITable table(String tableName, String language, int rowCount) throws DataSetException {
+        DefaultTable table = new DefaultTable(tableName, COLUMNS);
+        for (int row = 0; row < rowCount; row++) {
+            table.addRow(new Object[] { row, numericScript(language), stringScript(language), LITERAL });
+        }
+        return table;
+    }
+
+    /**
+     * Creates a table, of which only every twentieth field contains a script.
+     *
+     * @param language
+     *            the language of the scripts
+     * @param rowCount
+     *            the row count
+     * @param columnCount
+     *            the column count
+     *
+     * @return the table
+     *
+     * @throws DataSetException
+     *             if the table can't be created
+     */
+    static ITable literalHeavyTable(String language, int rowCount, int columnCount) throws DataSetException {
+        Column[] columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = new Column("COL" + i, DataType.VARCHAR);
+        }
+
+        DefaultTable table = new DefaultTable("LITERAL_HEAVY", columns);
+        int field = 0;
+        for (int row = 0; row < rowCount; row++) {
+            Object[] values = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = field++ % 20 == 0 ? numericScript(language) : LITERAL + i;
+            }
+            table.addRow(values);
+        }
+        return table;
+    }
+
+    /**
+     * Creates a data set with several generated tables.
+     *
+     * @param language
+     *            the language of the scripts
+     * @param tableCount
+     *            the table count
+     * @param rowCount
+     *            the row count per table
+     *
+     * @return the data set
+     *
+     * @throws DataSetException
+     *             if the data set can't be created
+     */
+    static IDataSet dataSet(String language, int tableCount, int rowCount) throws DataSetException {
+        DefaultDataSet dataSet = new DefaultDataSet();
+        for (int i = 0; i < tableCount; i++) {
+            dataSet.addTable(table(tableName(i), language, rowCount));
+        }
+        return dataSet;
+    }
+
+    /**
+     * Gets the name of a generated table.
+     *
+     * @param index
+     *            the index of the table
+     *
+     * @return the table name
+     */
+    static String tableName(int index) {
+        return "LOCATION" + index;
+    }
+
+    /**
+     * A handler, that doesn't modify scripts or results. Used to measure the overhead of the handler chain.
+     */
+    static class NoOpHandler implements ScriptInvocationHandler {
+
+        /** The language name. */
+        private final String languageName;
+
+        /**
+         * Instantiates a new no op handler.
+         *
+         * @param languageName
+         *            the language name
+         */
+        NoOpHandler(String languageName) {
+            this.languageName = languageName;
+        }
+
+        @Override
+        public String getLanguageName() {
+            return languageName;
+        }
+
+        @Override
+        public String preInvoke(String script) {
+            return script;
+        }
+
+        @Override
+        public Object postInvoke(Object object) {
+            return object;
+        }
+
+        @Override
+        public void setScriptEngine(ScriptEngine engine) {
+            // Do nothing
+        }
+    }
+}
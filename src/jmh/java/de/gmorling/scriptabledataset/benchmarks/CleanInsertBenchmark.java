@@ -0,0 +1,108 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset.benchmarks;
+
+import de.gmorling.scriptabledataset.ScriptableDataSet;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.operation.DatabaseOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a complete <code>CLEAN_INSERT</code> of a generated scriptable data set into an in-memory H2 database,
+ * including the creation of the data set and its script engines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CleanInsertBenchmark {
+
+    /** The language. */
+    @Param({ "groovy", "jruby", "graal.js" })
+    public String language;
+
+    /** The number of tables. */
+    @Param({ "10" })
+    public int tableCount;
+
+    /** The number of rows per table. */
+    @Param({ "100" })
+    public int rowCount;
+
+    /** The connection. */
+    private Connection connection;
+
+    /** The DBUnit connection. */
+    private IDatabaseConnection dbUnitConnection;
+
+    /** The wrapped data set. */
+    private IDataSet wrapped;
+
+    /**
+     * Creates the database and the data set.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            for (int i = 0; i < tableCount; i++) {
+                statement.execute("create table " + BenchmarkData.tableName(i)
+                        + "(id int primary key, num int, addr varchar(40), note varchar(40))");
+            }
+        }
+        dbUnitConnection = new DatabaseConnection(connection);
+        wrapped = BenchmarkData.dataSet(language, tableCount, rowCount);
+    }
+
+    /**
+     * Drops the database.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        dbUnitConnection.close();
+    }
+
+    /**
+     * Inserts the data set.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public void cleanInsert() throws Exception {
+        DatabaseOperation.CLEAN_INSERT.execute(dbUnitConnection,
+                new ScriptableDataSet(wrapped, BenchmarkData.config(language, 0)));
+    }
+}
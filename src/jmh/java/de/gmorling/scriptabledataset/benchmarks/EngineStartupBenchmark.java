@@ -0,0 +1,70 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset.benchmarks;
+
+import de.gmorling.scriptabledataset.ScriptEngineRegistry;
+import de.gmorling.scriptabledataset.ScriptableTable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.dataset.ITable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the startup of a scripting language: resolving its engine and evaluating the first scripted field, in a
+ * fresh JVM per measurement, as experienced by a test run. Complements {@link ScriptableTableBenchmark}, which measures
+ * the per-field latency of warmed up engines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class EngineStartupBenchmark {
+
+    /** The language. */
+    @Param({ "groovy", "jruby", "graal.js" })
+    public String language;
+
+    /** The wrapped table. */
+    private ITable wrapped;
+
+    /**
+     * Sets up the wrapped table.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        wrapped = BenchmarkData.table("LOCATION", language, 1);
+    }
+
+    /**
+     * Resolves the engine and reads the first scripted field.
+     *
+     * @return the value
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public Object firstScriptedValue() throws Exception {
+        ScriptEngineRegistry registry = new ScriptEngineRegistry(List.of(BenchmarkData.config(language, 0)));
+        return new ScriptableTable(wrapped, registry).getValue(0, "ADDR");
+    }
+}
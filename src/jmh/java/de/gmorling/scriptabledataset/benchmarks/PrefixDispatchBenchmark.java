@@ -0,0 +1,157 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset.benchmarks;
+
+import de.gmorling.scriptabledataset.ScriptEngineRegistry;
+import de.gmorling.scriptabledataset.ScriptableDataSetConfig;
+import de.gmorling.scriptabledataset.ScriptableTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.ITable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks reading a literal-heavy table, of which only every twentieth field is a script. Compares a full scan of
+ * the plain wrapped table with a scan through a {@link ScriptableTable} configured with several prefixes, so that the
+ * difference is the dispatch overhead plus the few script evaluations. As a baseline for the dispatch, a third scan
+ * matches each field of the wrapped table against the same prefixes linearly with <code>startsWith</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefixDispatchBenchmark {
+
+    /** The row count. */
+    private static final int ROW_COUNT = 200;
+
+    /** The column count. */
+    private static final int COLUMN_COUNT = 20;
+
+    /** The prefixes, all of the same language. */
+    private static final String[] PREFIXES = { "groovy:", "g:", "gr:", "Webster:" };
+
+    /** The wrapped table. */
+    private ITable wrapped;
+
+    /** The scriptable table. */
+    private ScriptableTable table;
+
+    /** The column names. */
+    private String[] columns;
+
+    /**
+     * Sets up the tables.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        wrapped = BenchmarkData.literalHeavyTable("groovy", ROW_COUNT, COLUMN_COUNT);
+        List<ScriptableDataSetConfig> configurations = new ArrayList<>();
+        for (String onePrefix : PREFIXES) {
+            configurations.add(new ScriptableDataSetConfig("groovy", onePrefix));
+        }
+        table = new ScriptableTable(wrapped, new ScriptEngineRegistry(configurations));
+
+        Column[] theColumns = wrapped.getTableMetaData().getColumns();
+        columns = new String[theColumns.length];
+        for (int i = 0; i < theColumns.length; i++) {
+            columns[i] = theColumns[i].getColumnName();
+        }
+    }
+
+    /**
+     * Scans the wrapped table.
+     *
+     * @param blackhole
+     *            the blackhole
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public void wrappedScan(Blackhole blackhole) throws Exception {
+        scan(wrapped, blackhole);
+    }
+
+    /**
+     * Scans the wrapped table, matching each field against the prefixes linearly. The longest matching prefix wins,
+     * as with the prefix matcher of the scriptable table.
+     *
+     * @param blackhole
+     *            the blackhole
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public void linearDispatchScan(Blackhole blackhole) throws Exception {
+        for (int row = 0; row < ROW_COUNT; row++) {
+            for (String column : columns) {
+                Object theValue = wrapped.getValue(row, column);
+                String match = null;
+                if (theValue instanceof String field) {
+                    for (String onePrefix : PREFIXES) {
+                        if (field.startsWith(onePrefix) && (match == null || onePrefix.length() > match.length())) {
+                            match = onePrefix;
+                        }
+                    }
+                }
+                blackhole.consume(match != null ? match : theValue);
+            }
+        }
+    }
+
+    /**
+     * Scans the scriptable table.
+     *
+     * @param blackhole
+     *            the blackhole
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public void scriptableScan(Blackhole blackhole) throws Exception {
+        scan(table, blackhole);
+    }
+
+    /**
+     * Reads all fields of a table.
+     *
+     * @param theTable
+     *            the table
+     * @param blackhole
+     *            the blackhole
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    private void scan(ITable theTable, Blackhole blackhole) throws Exception {
+        for (int row = 0; row < ROW_COUNT; row++) {
+            for (String column : columns) {
+                blackhole.consume(theTable.getValue(row, column));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset.benchmarks;
+
+import de.gmorling.scriptabledataset.EvaluationMode;
+import de.gmorling.scriptabledataset.ScriptEngineRegistry;
+import de.gmorling.scriptabledataset.ScriptableTable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.dataset.ITable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the hot paths of {@link ScriptableTable}: construction, analysis, eager evaluation, reading literal
+ * fields, reading scripted fields and the overhead of the handler chain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScriptableTableBenchmark {
+
+    /** The number of rows of the benchmarked table. */
+    private static final int ROW_COUNT = 1000;
+
+    /** The language. */
+    @Param({ "groovy", "jruby", "graal.js" })
+    public String language;
+
+    /** The number of handlers. */
+    @Param({ "0", "4" })
+    public int handlerCount;
+
+    /** The registry. */
+    private ScriptEngineRegistry registry;
+
+    /** The registry of a configuration with eager evaluation. */
+    private ScriptEngineRegistry eagerRegistry;
+
+    /** The wrapped table. */
+    private ITable wrapped;
+
+    /** The scriptable table. */
+    private ScriptableTable table;
+
+    /** The row read next. */
+    private int row;
+
+    /**
+     * Sets up the registry and tables.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        registry = new ScriptEngineRegistry(List.of(BenchmarkData.config(language, handlerCount)));
+        eagerRegistry = new ScriptEngineRegistry(
+                List.of(BenchmarkData.config(language, handlerCount, EvaluationMode.EAGER)));
+        wrapped = BenchmarkData.table("LOCATION", language, ROW_COUNT);
+        table = new ScriptableTable(wrapped, registry);
+    }
+
+    /**
+     * Creates a table, without reading any field.
+     *
+     * @return the table
+     */
+    @Benchmark
+    public Object construction() {
+        return new ScriptableTable(wrapped, registry);
+    }
+
+    /**
+     * Creates a table and reads its first field, a literal, which includes the analysis of the wrapped table but no
+     * script evaluation.
+     *
+     * @return the value
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public Object analysis() throws Exception {
+        return new ScriptableTable(wrapped, registry).getValue(0, "ID");
+    }
+
+    /**
+     * Creates a table of a configuration with eager evaluation and reads its first field, which includes the analysis
+     * of the wrapped table and the evaluation of all its scripts.
+     *
+     * @return the value
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public Object eagerEvaluation() throws Exception {
+        return new ScriptableTable(wrapped, eagerRegistry).getValue(0, "ID");
+    }
+
+    /**
+     * Reads a literal field.
+     *
+     * @return the value
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public Object literalValue() throws Exception {
+        return table.getValue(nextRow(), "NOTE");
+    }
+
+    /**
+     * Reads a scripted field.
+     *
+     * @return the value
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Benchmark
+    public Object scriptedValue() throws Exception {
+        return table.getValue(nextRow(), "ADDR");
+    }
+
+    /**
+     * Gets the next row to read.
+     *
+     * @return the row
+     */
+    private int nextRow() {
+        row = row + 1 == ROW_COUNT ? 0 : row + 1;
+        return row;
+    }
+}
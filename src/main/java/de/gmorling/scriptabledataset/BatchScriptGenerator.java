@@ -0,0 +1,93 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Combines several scripts of one language into a single script, which evaluates all of them and returns their results
+ * as a list (or array) in the same order. Used by {@link EvaluationMode#BATCH}, so that the scripts of a table are
+ * evaluated with few engine calls instead of one call per field.
+ * <p>
+ * Each script must be valid as the body of a function of the language, returning the value of its last expression.
+ */
+@FunctionalInterface
+public interface BatchScriptGenerator {
+
+    /** Generates a Groovy list literal of closures, each called immediately. */
+    BatchScriptGenerator GROOVY = scripts -> join(scripts, "[\n", "{ ->\n", "\n}.call()", "\n]");
+
+    /** Generates a Ruby array literal of lambdas, each called immediately. */
+    BatchScriptGenerator RUBY = scripts -> join(scripts, "[\n", "lambda {\n", "\n}.call", "\n]");
+
+    /**
+     * Generates a JavaScript array literal of parenthesized expressions. Unlike the other languages, JavaScript has no
+     * implicit return, so each script must be a single expression.
+     */
+    BatchScriptGenerator JAVASCRIPT = scripts -> join(scripts, "[\n", "(\n", "\n)", "\n]");
+
+    /**
+     * Generates a script evaluating all given scripts.
+     *
+     * @param scripts
+     *            The scripts, as returned by the handlers of the configuration. Never empty.
+     *
+     * @return a script returning a list or an array with one result per given script, in the same order
+     */
+    String generate(List<String> scripts);
+
+    /**
+     * Gets the built-in generator for the given language.
+     *
+     * @param languageName
+     *            The name of the language as expected by the JSR 223 scripting engine manager. May not be null.
+     *
+     * @return the generator, or null if there is no built-in generator for that language
+     */
+    static BatchScriptGenerator forLanguage(String languageName) {
+        switch (languageName.toLowerCase(Locale.ROOT)) {
+            case "groovy":
+                return GROOVY;
+            case "jruby":
+            case "ruby":
+                return RUBY;
+            case "graal.js":
+            case "js":
+            case "javascript":
+            case "ecmascript":
+                return JAVASCRIPT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Wraps each script and joins them into one literal.
+     *
+     * @param scripts
+     *            the scripts
+     * @param open
+     *            the start of the literal
+     * @param before
+     *            the text preceding each script
+     * @param after
+     *            the text following each script
+     * @param close
+     *            the end of the literal
+     *
+     * @return the literal
+     */
+    private static String join(List<String> scripts, String open, String before, String after, String close) {
+        StringBuilder theValue = new StringBuilder(open);
+        for (int i = 0; i < scripts.size(); i++) {
+            if (i > 0) {
+                theValue.append(",\n");
+            }
+            theValue.append(before).append(scripts.get(i)).append(after);
+        }
+        return theValue.append(close).toString();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.dbunit.dataset.Column;
+
+/**
+ * Stores evaluated field values of one table column by column. The storage of each column is created upon its first
+ * value and chosen by the column's data type (see {@link ColumnValues}), so that e.g. integer or timestamp columns
+ * don't hold a boxed object per field. A bit set records which fields have been evaluated, as <code>null</code> is a
+ * valid script result.
+ * <p>
+ * All access is synchronized, as tables with a lazy evaluation mode store results while being read.
+ */
+class CellValueStore {
+
+    /** The row count. */
+    private final int rowCount;
+
+    /** The columns. */
+    private final Column[] columns;
+
+    /** The values by column index, created upon first usage. */
+    private final ColumnValues[] values;
+
+    /** The evaluated fields. */
+    private final BitSet evaluated;
+
+    /**
+     * Creates a new CellValueStore.
+     *
+     * @param rowCount
+     *            the row count
+     * @param columns
+     *            the columns of the table
+     */
+    CellValueStore(int rowCount, Column[] columns) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.values = new ColumnValues[columns.length];
+        this.evaluated = new BitSet(Math.multiplyExact(rowCount, columns.length));
+    }
+
+    /**
+     * Whether the given field has been evaluated.
+     *
+     * @param row
+     *            the row
+     * @param columnIndex
+     *            the column index
+     *
+     * @return true, if a value is stored for the field
+     */
+    synchronized boolean contains(int row, int columnIndex) {
+        return evaluated.get(index(row, columnIndex));
+    }
+
+    /**
+     * Gets the value stored for the given field, boxing it if needed.
+     *
+     * @param row
+     *            the row
+     * @param columnIndex
+     *            the column index
+     *
+     * @return the value
+     */
+    synchronized Object get(int row, int columnIndex) {
+        ColumnValues column = values[columnIndex];
+        return column == null ? null : column.get(row);
+    }
+
+    /**
+     * Stores the value of the given field.
+     *
+     * @param row
+     *            the row
+     * @param columnIndex
+     *            the column index
+     * @param value
+     *            the value
+     */
+    synchronized void put(int row, int columnIndex, Object value) {
+
+        ColumnValues column = values[columnIndex];
+        if (column == null) {
+            column = ColumnValues.forDataType(columns[columnIndex].getDataType(), rowCount);
+            values[columnIndex] = column;
+        }
+
+        if (value != null && !column.accepts(value)) {
+            column = inflate(columnIndex);
+        }
+
+        column.set(row, value);
+        evaluated.set(index(row, columnIndex));
+    }
+
+    /**
+     * Gets the number of stored values.
+     *
+     * @return the number of stored values
+     */
+    synchronized int size() {
+        return evaluated.cardinality();
+    }
+
+    /**
+     * Describes the memory used by this store.
+     *
+     * @param tableName
+     *            the table name
+     *
+     * @return the footprint
+     */
+    synchronized StorageFootprint getFootprint(String tableName) {
+
+        Map<String, String> kindsByColumn = new LinkedHashMap<>();
+        Map<String, Long> bytesByColumn = new LinkedHashMap<>();
+
+        for (int columnIndex = 0; columnIndex < values.length; columnIndex++) {
+            if (values[columnIndex] != null) {
+                kindsByColumn.put(columns[columnIndex].getColumnName(), values[columnIndex].getKind());
+                bytesByColumn.put(columns[columnIndex].getColumnName(), values[columnIndex].getFootprintBytes());
+            }
+        }
+
+        return new StorageFootprint(tableName, size(), evaluated.size() / Byte.SIZE, kindsByColumn, bytesByColumn);
+    }
+
+    /**
+     * Replaces the primitive storage of a column by an object storage, keeping all values stored so far.
+     *
+     * @param columnIndex
+     *            the column index
+     *
+     * @return the new storage
+     */
+    private ColumnValues inflate(int columnIndex) {
+
+        ColumnValues inflated = new ColumnValues.ObjectValues(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            if (contains(row, columnIndex)) {
+                inflated.set(row, values[columnIndex].get(row));
+            }
+        }
+        values[columnIndex] = inflated;
+
+        return inflated;
+    }
+
+    /**
+     * Computes the bit index of a field.
+     *
+     * @param row
+     *            the row
+     * @param columnIndex
+     *            the column index
+     *
+     * @return the index
+     */
+    private int index(int row, int columnIndex) {
+        return row * columns.length + columnIndex;
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.sql.Timestamp;
+import java.util.BitSet;
+
+import org.dbunit.dataset.datatype.DataType;
+
+/**
+ * The stored values of one column of a {@link CellValueStore}. Columns whose data type maps to a primitive type are
+ * kept in primitive arrays, so that no boxed object is held per field; values are boxed upon read only. A column which
+ * receives a value not fitting its primitive type (e.g. a handler returning another type) is inflated into an object
+ * column.
+ */
+abstract class ColumnValues {
+
+    /** The size of an array header in bytes, as estimated for a 64 bit JVM with compressed references. */
+    static final long ARRAY_HEADER_BYTES = 16;
+
+    /** The fields holding null. */
+    private final BitSet nulls = new BitSet();
+
+    /**
+     * Creates the storage for a column of the given type, chosen by the class the type casts values into.
+     *
+     * @param dataType
+     *            The data type of the column. May be null.
+     * @param rowCount
+     *            the row count
+     *
+     * @return the column storage
+     */
+    static ColumnValues forDataType(DataType dataType, int rowCount) {
+
+        Class<?> typeClass = dataType == null || dataType == DataType.UNKNOWN ? null : dataType.getTypeClass();
+
+        if (typeClass == Integer.class) {
+            return new IntValues(rowCount);
+        }
+        if (typeClass == Long.class) {
+            return new LongValues(rowCount);
+        }
+        if (typeClass == Double.class) {
+            return new DoubleValues(rowCount);
+        }
+        if (typeClass == Boolean.class) {
+            return new BooleanValues();
+        }
+        if (typeClass == Timestamp.class) {
+            return new TimestampValues(rowCount);
+        }
+        if (typeClass == java.sql.Date.class) {
+            return new DateValues(rowCount);
+        }
+        return new ObjectValues(rowCount);
+    }
+
+    /**
+     * Gets the value of a row, boxing it if needed.
+     *
+     * @param row
+     *            the row
+     *
+     * @return the value
+     */
+    final Object get(int row) {
+        return nulls.get(row) ? null : getValue(row);
+    }
+
+    /**
+     * Sets the value of a row.
+     *
+     * @param row
+     *            the row
+     * @param value
+     *            A value accepted by this column or null.
+     */
+    final void set(int row, Object value) {
+        if (value == null) {
+            nulls.set(row);
+        } else {
+            nulls.clear(row);
+            setValue(row, value);
+        }
+    }
+
+    /**
+     * Gets the estimated number of bytes used by this column, excluding objects referenced by an object column.
+     *
+     * @return the number of bytes
+     */
+    long getFootprintBytes() {
+        return nulls.size() / Byte.SIZE + getValuesFootprintBytes();
+    }
+
+    /**
+     * Whether the given non-null value can be stored in this column.
+     *
+     * @param value
+     *            the value
+     *
+     * @return true, if the value is accepted
+     */
+    abstract boolean accepts(Object value);
+
+    /**
+     * Gets the kind of storage, as shown in a {@link StorageFootprint}.
+     *
+     * @return the kind, e.g. "int"
+     */
+    abstract String getKind();
+
+    /**
+     * Gets the non-null value of a row.
+     *
+     * @param row
+     *            the row
+     *
+     * @return the value
+     */
+    abstract Object getValue(int row);
+
+    /**
+     * Sets the non-null value of a row.
+     *
+     * @param row
+     *            the row
+     * @param value
+     *            the value, accepted by this column
+     */
+    abstract void setValue(int row, Object value);
+
+    /**
+     * Gets the estimated number of bytes used by the values of this column.
+     *
+     * @return the number of bytes
+     */
+    abstract long getValuesFootprintBytes();
+
+    /**
+     * Values of columns of any type.
+     */
+    static final class ObjectValues extends ColumnValues {
+
+        /** The values. */
+        private final Object[] values;
+
+        /**
+         * Instantiates new object values.
+         *
+         * @param rowCount
+         *            the row count
+         */
+        ObjectValues(int rowCount) {
+            this.values = new Object[rowCount];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        @Override
+        String getKind() {
+            return "object";
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        long getValuesFootprintBytes() {
+            return ARRAY_HEADER_BYTES + 4L * values.length;
+        }
+    }
+
+    /**
+     * Values of integer columns.
+     */
+    static final class IntValues extends ColumnValues {
+
+        /** The values. */
+        private final int[] values;
+
+        /**
+         * Instantiates new int values.
+         *
+         * @param rowCount
+         *            the row count
+         */
+        IntValues(int rowCount) {
+            this.values = new int[rowCount];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        @Override
+        String getKind() {
+            return "int";
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = (Integer) value;
+        }
+
+        @Override
+        long getValuesFootprintBytes() {
+            return ARRAY_HEADER_BYTES + 4L * values.length;
+        }
+    }
+
+    /**
+     * Values of long columns.
+     */
+    static final class LongValues extends ColumnValues {
+
+        /** The values. */
+        private final long[] values;
+
+        /**
+         * Instantiates new long values.
+         *
+         * @param rowCount
+         *            the row count
+         */
+        LongValues(int rowCount) {
+            this.values = new long[rowCount];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Long;
+        }
+
+        @Override
+        String getKind() {
+            return "long";
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = (Long) value;
+        }
+
+        @Override
+        long getValuesFootprintBytes() {
+            return ARRAY_HEADER_BYTES + 8L * values.length;
+        }
+    }
+
+    /**
+     * Values of double columns.
+     */
+    static final class DoubleValues extends ColumnValues {
+
+        /** The values. */
+        private final double[] values;
+
+        /**
+         * Instantiates new double values.
+         *
+         * @param rowCount
+         *            the row count
+         */
+        DoubleValues(int rowCount) {
+            this.values = new double[rowCount];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        @Override
+        String getKind() {
+            return "double";
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = (Double) value;
+        }
+
+        @Override
+        long getValuesFootprintBytes() {
+            return ARRAY_HEADER_BYTES + 8L * values.length;
+        }
+    }
+
+    /**
+     * Values of boolean columns.
+     */
+    static final class BooleanValues extends ColumnValues {
+
+        /** The values. */
+        private final BitSet values = new BitSet();
+
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Boolean;
+        }
+
+        @Override
+        String getKind() {
+            return "boolean";
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values.set(row, (Boolean) value);
+        }
+
+        @Override
+        long getValuesFootprintBytes() {
+            return values.size() / Byte.SIZE;
+        }
+    }
+
+    /**
+     * Values of timestamp columns, kept as milliseconds and nanoseconds.
+     */
+    static final class TimestampValues extends ColumnValues {
+
+        /** The milliseconds since the epoch. */
+        private final long[] millis;
+
+        /** The nanoseconds within the second. */
+        private final int[] nanos;
+
+        /**
+         * Instantiates new timestamp values.
+         *
+         * @param rowCount
+         *            the row count
+         */
+        TimestampValues(int rowCount) {
+            this.millis = new long[rowCount];
+            this.nanos = new int[rowCount];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value != null && value.getClass() == Timestamp.class;
+        }
+
+        @Override
+        String getKind() {
+            return "timestamp";
+        }
+
+        @Override
+        Object getValue(int row) {
+            Timestamp theValue = new Timestamp(millis[row]);
+            theValue.setNanos(nanos[row]);
+            return theValue;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            Timestamp timestamp = (Timestamp) value;
+            millis[row] = timestamp.getTime();
+            nanos[row] = timestamp.getNanos();
+        }
+
+        @Override
+        long getValuesFootprintBytes() {
+            return 2 * ARRAY_HEADER_BYTES + 12L * millis.length;
+        }
+    }
+
+    /**
+     * Values of date columns, kept as milliseconds.
+     */
+    static final class DateValues extends ColumnValues {
+
+        /** The milliseconds since the epoch. */
+        private final long[] millis;
+
+        /**
+         * Instantiates new date values.
+         *
+         * @param rowCount
+         *            the row count
+         */
+        DateValues(int rowCount) {
+            this.millis = new long[rowCount];
+        }
+
+        @Override
+        boolean accepts(Object value) {
+            return value != null && value.getClass() == java.sql.Date.class;
+        }
+
+        @Override
+        String getKind() {
+            return "date";
+        }
+
+        @Override
+        Object getValue(int row) {
+            return new java.sql.Date(millis[row]);
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            millis[row] = ((java.sql.Date) value).getTime();
+        }
+
+        @Override
+        long getValuesFootprintBytes() {
+            return ARRAY_HEADER_BYTES + 8L * millis.length;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+/**
+ * A bounded cache of compiled scripts for one script engine, evicting the least recently used script once the maximum
+ * size is reached. Scripts are keyed by the text they are taken from: the complete field including its prefix, or the
+ * script returned by the <code>preInvoke</code> handlers, if any handler rewrites scripts.
+ */
+class CompiledScriptCache {
+
+    /** The compilable engine, or null if the engine can't compile scripts. */
+    private final Compilable compilable;
+
+    /** The maximum size. */
+    private final int maximumSize;
+
+    /** The compiled scripts, in access order. */
+    private final LinkedHashMap<String, CompiledScript> compiledScripts;
+
+    /**
+     * Creates a new CompiledScriptCache.
+     *
+     * @param engine
+     *            the engine to compile scripts with
+     * @param maximumSize
+     *            the maximum number of cached scripts, 0 disables caching
+     */
+    CompiledScriptCache(ScriptEngine engine, int maximumSize) {
+        this.compilable = engine instanceof Compilable && maximumSize > 0 ? (Compilable) engine : null;
+        this.maximumSize = maximumSize;
+        this.compiledScripts = new LinkedHashMap<>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > CompiledScriptCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Whether scripts are compiled and cached at all.
+     *
+     * @return true, if the engine implements {@link Compilable} and the cache size is positive
+     */
+    boolean isEnabled() {
+        return compilable != null;
+    }
+
+    /**
+     * Returns the compiled form of the given script, compiling it if it isn't cached yet.
+     *
+     * @param script
+     *            the script
+     *
+     * @return the compiled script, or null if the engine can't compile scripts
+     *
+     * @throws ScriptException
+     *             if the script can't be compiled
+     */
+    CompiledScript get(String script) throws ScriptException {
+        return get(script, 0);
+    }
+
+    /**
+     * Returns the compiled form of the script starting at the given offset of a text, compiling it if it isn't cached
+     * yet. The script is cached by the complete text.
+     *
+     * @param text
+     *            the text, e.g. a field including the prefix
+     * @param offset
+     *            the offset of the script within the text
+     *
+     * @return the compiled script, or null if the engine can't compile scripts
+     *
+     * @throws ScriptException
+     *             if the script can't be compiled
+     */
+    CompiledScript get(String text, int offset) throws ScriptException {
+        if (compilable == null) {
+            return null;
+        }
+
+        synchronized (compiledScripts) {
+            CompiledScript compiled = compiledScripts.get(text);
+            if (compiled == null) {
+                compiled = compilable.compile(text.substring(offset));
+                compiledScripts.put(text, compiled);
+            }
+            return compiled;
+        }
+    }
+
+    /**
+     * Returns the compiled form of the given script, if it is cached.
+     *
+     * @param script
+     *            the script, or the text it has been taken from
+     *
+     * @return the compiled script, or null if it isn't cached or the engine can't compile scripts
+     */
+    CompiledScript getIfPresent(String script) {
+        if (compilable == null) {
+            return null;
+        }
+
+        synchronized (compiledScripts) {
+            return compiledScripts.get(script);
+        }
+    }
+
+    /**
+     * Gets the number of cached scripts.
+     *
+     * @return the size
+     */
+    int size() {
+        synchronized (compiledScripts) {
+            return compiledScripts.size();
+        }
+    }
+}
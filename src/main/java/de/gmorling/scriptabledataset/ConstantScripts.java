@@ -0,0 +1,130 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+/**
+ * Decides whether a script is constant, i.e. yields the same result for every evaluation within one data set, so that
+ * its result may be folded (see {@link ScriptableDataSetConfig#isConstantFolding()}).
+ * <p>
+ * The analysis is conservative and independent of the language: a script is constant if it consists of nothing but
+ * number literals, string literals without escapes or interpolation, operators, brackets and the binding
+ * {@value ScriptEngineRegistry#EPOCH}, e.g. <code>12 / 2</code> or <code>epoch - 14</code>. Any other identifier, such
+ * as a method call or a variable, makes the script non-constant, as does an assignment.
+ */
+final class ConstantScripts {
+
+    /** The characters of operators and brackets, apart from <code>=</code>. */
+    private static final String OPERATORS = "+-*/%()[]{}<>!&|^~?:,.; \t\r\n";
+
+    /** The characters which may precede <code>=</code> in a comparison. */
+    private static final String COMPARISONS = "=!<>";
+
+    /**
+     * Instantiates a new constant scripts.
+     */
+    private ConstantScripts() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * Whether the script starting at the given offset of a field is constant.
+     *
+     * @param field
+     *            the field
+     * @param offset
+     *            the offset of the script within the field, i.e. the length of the prefix
+     *
+     * @return true, if the script is proven constant
+     */
+    static boolean isConstant(String field, int offset) {
+        int length = field.length();
+        int i = offset;
+        while (i < length) {
+            char c = field.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipStringLiteral(field, i);
+                if (i < 0) {
+                    return false;
+                }
+            } else if (Character.isDigit(c)) {
+                i = skipNumberLiteral(field, i);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < length && Character.isJavaIdentifierPart(field.charAt(i))) {
+                    i++;
+                }
+                if (!field.startsWith(ScriptEngineRegistry.EPOCH, start)
+                        || i - start != ScriptEngineRegistry.EPOCH.length()) {
+                    return false;
+                }
+            } else if (c == '=') {
+                if (i + 1 < length && field.charAt(i + 1) == '=') {
+                    i += 2;
+                } else if (i > offset && COMPARISONS.indexOf(field.charAt(i - 1)) >= 0) {
+                    i++;
+                } else {
+                    return false;
+                }
+            } else if (OPERATORS.indexOf(c) >= 0) {
+                i++;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips a string literal.
+     *
+     * @param field
+     *            the field
+     * @param start
+     *            the index of the opening quote
+     *
+     * @return the index after the closing quote, or -1 if the literal isn't closed or contains escapes or, for double
+     *         quotes, interpolation
+     */
+    private static int skipStringLiteral(String field, int start) {
+        char quote = field.charAt(start);
+        for (int i = start + 1; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == quote) {
+                return i + 1;
+            }
+            if (c == '\\' || quote == '"' && (c == '$' || c == '#')) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips a number literal, including radix prefixes, exponents and type suffixes such as <code>0x1F</code>,
+     * <code>1.5e3</code> or <code>12L</code>. A dot is only part of the literal if a digit follows, so that method
+     * calls on numbers aren't skipped.
+     *
+     * @param field
+     *            the field
+     * @param start
+     *            the index of the first digit
+     *
+     * @return the index after the literal
+     */
+    private static int skipNumberLiteral(String field, int start) {
+        int length = field.length();
+        int i = start;
+        while (i < length) {
+            char c = field.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '_'
+                    || c == '.' && i + 1 < length && Character.isDigit(field.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+}
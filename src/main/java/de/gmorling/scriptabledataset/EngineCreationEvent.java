@@ -0,0 +1,57 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import javax.script.ScriptEngine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for the creation of a script engine.
+ */
+@Name("de.gmorling.scriptabledataset.EngineCreation")
+@Label("Script Engine Creation")
+@Description("Creation of a JSR 223 script engine for a scriptable data set")
+@Category({ "DBUnit", "Scriptable DataSet" })
+@StackTrace(false)
+final class EngineCreationEvent extends Event {
+
+    /** The language name. */
+    @Label("Language")
+    String languageName;
+
+    /** The engine name. */
+    @Label("Engine")
+    String engineName;
+
+    /** The engine version. */
+    @Label("Engine Version")
+    String engineVersion;
+
+    /**
+     * Ends the event and commits it, if it passes the recording's enabled and threshold settings.
+     *
+     * @param languageName
+     *            the language name
+     * @param engine
+     *            the created engine, null if no engine was found
+     */
+    void finish(String languageName, ScriptEngine engine) {
+        end();
+        if (shouldCommit()) {
+            this.languageName = languageName;
+            if (engine != null) {
+                this.engineName = engine.getFactory().getEngineName();
+                this.engineVersion = engine.getFactory().getEngineVersion();
+            }
+            commit();
+        }
+    }
+}
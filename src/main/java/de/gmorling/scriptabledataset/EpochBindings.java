@@ -0,0 +1,102 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.AbstractMap;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.SimpleScriptContext;
+
+/**
+ * The engine scope bindings of scripts evaluated by an engine shared with other data sets (see
+ * {@link ScriptableDataSetConfig#isSharedEngine()}). They expose the binding {@value ScriptEngineRegistry#EPOCH} of
+ * one data set on top of the engine's own bindings, so that the epoch isn't written into the engine, where it would be
+ * seen by all data sets using it. Assignments of scripts go to the engine's own bindings.
+ */
+final class EpochBindings extends AbstractMap<String, Object> implements Bindings {
+
+    /** The engine scope bindings of the engine. */
+    private final Bindings engineBindings;
+
+    /** The evaluation epoch. */
+    private final Date epoch;
+
+    /**
+     * Instantiates new epoch bindings.
+     *
+     * @param engineBindings
+     *            the engine scope bindings of the engine
+     * @param epoch
+     *            the evaluation epoch
+     */
+    private EpochBindings(Bindings engineBindings, Date epoch) {
+        this.engineBindings = engineBindings;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Creates a script context exposing the given epoch on top of the bindings of an engine. The context doesn't change
+     * while scripts are evaluated, so it may be used by all threads sharing the engine.
+     *
+     * @param engine
+     *            the engine
+     * @param epoch
+     *            the evaluation epoch
+     *
+     * @return the script context
+     */
+    static ScriptContext createContext(ScriptEngine engine, Date epoch) {
+        ScriptContext engineContext = engine.getContext();
+        SimpleScriptContext context = new SimpleScriptContext();
+        context.setBindings(new EpochBindings(engineContext.getBindings(ScriptContext.ENGINE_SCOPE), epoch),
+                ScriptContext.ENGINE_SCOPE);
+        context.setBindings(engineContext.getBindings(ScriptContext.GLOBAL_SCOPE), ScriptContext.GLOBAL_SCOPE);
+        context.setReader(engineContext.getReader());
+        context.setWriter(engineContext.getWriter());
+        context.setErrorWriter(engineContext.getErrorWriter());
+        return context;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return ScriptEngineRegistry.EPOCH.equals(key) ? epoch : engineBindings.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return ScriptEngineRegistry.EPOCH.equals(key) || engineBindings.containsKey(key);
+    }
+
+    @Override
+    public Object put(String name, Object value) {
+        return engineBindings.put(name, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> toMerge) {
+        engineBindings.putAll(toMerge);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return engineBindings.remove(key);
+    }
+
+    /**
+     * Returns all bindings. Only built if an engine iterates the bindings (e.g. to declare them as variables).
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Map<String, Object> theValue = new HashMap<>(engineBindings);
+        theValue.put(ScriptEngineRegistry.EPOCH, epoch);
+        return theValue.entrySet();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+/**
+ * Determines when the scripts of a {@link ScriptableDataSetConfig} are evaluated and whether their results are kept.
+ */
+public enum EvaluationMode {
+
+    /**
+     * Scripts are evaluated on every read of a field. This is the default and matches the behavior of earlier
+     * versions.
+     */
+    ON_ACCESS,
+
+    /**
+     * Scripts are evaluated on the first read of a field; the result is stored and returned for every further read of
+     * that field.
+     */
+    LAZY,
+
+    /**
+     * All scripts of a table are evaluated at once when the table is first accessed; the results are stored and
+     * returned for every read.
+     */
+    EAGER,
+
+    /**
+     * Like {@link #EAGER}, but the scripts of a table are spread over several threads. Engines which don't declare a
+     * <code>THREADING</code> capability are pooled, so that each thread uses an engine of its own.
+     *
+     * @see ScriptableDataSetConfig#getParallelism()
+     */
+    PARALLEL,
+
+    /**
+     * Like {@link #EAGER}, but the scripts of a table are combined into few scripts by a {@link BatchScriptGenerator},
+     * each evaluating up to a configured number of fields with a single engine call. This saves the overhead of binding
+     * setup and crossing the boundary between Java and the scripting language for every field. If a combined script
+     * fails, its fields are evaluated one by one, so that the error names the failing field. Can't be combined with
+     * row bindings.
+     *
+     * @see ScriptableDataSetConfig#getBatchScriptGenerator()
+     * @see ScriptableDataSetConfig#getBatchSize()
+     */
+    BATCH;
+
+    /**
+     * Whether all scripts of a table are evaluated at once in this mode.
+     *
+     * @return true, if scripts are evaluated upon first access of the table
+     */
+    public boolean isEager() {
+        return this == EAGER || this == PARALLEL || this == BATCH;
+    }
+
+    /**
+     * Whether results of this mode are stored in the table.
+     *
+     * @return true, if results are stored
+     */
+    public boolean isMaterialized() {
+        return this != ON_ACCESS;
+    }
+}
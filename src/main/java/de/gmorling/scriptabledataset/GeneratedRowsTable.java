@@ -0,0 +1,304 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * Expands template rows of a table into several virtual rows. The number of rows generated by a row is given by its
+ * value of the generator column (see {@link ScriptableDataSetOptions#getRowGeneratorColumn()}): a number or a script
+ * returning one. Rows without such a value stand for themselves. The generator column itself is hidden from the table
+ * meta data, so it isn't inserted into the database.
+ * <p>
+ * Generated rows aren't stored: each virtual row is mapped to its template row upon access, so that e.g. 100.000 rows
+ * of load test data don't have to be parsed from a file. The scripts of a template row tell the generated rows apart by
+ * the bindings {@value RowBindings#ROW} (the index of the virtual row) and {@value RowBindings#SEQUENCE} (the number of
+ * the row among those generated by its template row, starting with 1).
+ */
+class GeneratedRowsTable implements ITable {
+
+    /** The wrapped. */
+    private final ITable wrapped;
+
+    /** The registry, evaluating scripted row counts. */
+    private final ScriptEngineRegistry registry;
+
+    /** The name of the generator column, as given by the wrapped table. */
+    private final String generatorColumn;
+
+    /** The meta data, without the generator column. */
+    private final ITableMetaData metaData;
+
+    /**
+     * The index of the first virtual row of each template row, followed by the total row count. Computed upon first
+     * usage.
+     */
+    private volatile int[] firstRows;
+
+    /**
+     * Creates a new GeneratedRowsTable.
+     *
+     * @param wrapped
+     *            the table containing the template rows
+     * @param registry
+     *            the registry
+     * @param generatorColumn
+     *            the generator column of the wrapped table
+     * @param metaData
+     *            the meta data without the generator column
+     */
+    private GeneratedRowsTable(ITable wrapped, ScriptEngineRegistry registry, String generatorColumn,
+            ITableMetaData metaData) {
+        this.wrapped = wrapped;
+        this.registry = registry;
+        this.generatorColumn = generatorColumn;
+        this.metaData = metaData;
+    }
+
+    /**
+     * Wraps the given table, if it contains the generator column configured in the registry and allows random access.
+     *
+     * @param table
+     *            the table
+     * @param registry
+     *            the registry
+     *
+     * @return the table generating rows, or the given table if it has no generator column
+     */
+    static ITable expand(ITable table, ScriptEngineRegistry registry) {
+
+        String generatorColumn = registry.getOptions().getRowGeneratorColumn();
+        if (generatorColumn == null) {
+            return table;
+        }
+
+        try {
+            ITableMetaData tableMetaData = table.getTableMetaData();
+            Column[] columns = tableMetaData.getColumns();
+            List<Column> remaining = new ArrayList<>(columns.length);
+            Column generator = null;
+            for (Column oneColumn : columns) {
+                if (oneColumn.getColumnName().equalsIgnoreCase(generatorColumn)) {
+                    generator = oneColumn;
+                } else {
+                    remaining.add(oneColumn);
+                }
+            }
+
+            if (generator == null || !isRandomAccess(table)) {
+                return table;
+            }
+
+            return new GeneratedRowsTable(table, registry, generator.getColumnName(),
+                    new DefaultTableMetaData(tableMetaData.getTableName(), remaining.toArray(new Column[0]),
+                            tableMetaData.getPrimaryKeys()));
+        } catch (DataSetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ITableMetaData getTableMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public int getRowCount() {
+        int[] theFirstRows = getFirstRows();
+        return theFirstRows[theFirstRows.length - 1];
+    }
+
+    @Override
+    public Object getValue(int row, String column) throws DataSetException {
+        return wrapped.getValue(getTemplateRow(getFirstRows(), row), column);
+    }
+
+    /**
+     * Gets the number of a virtual row among the rows generated by its template row.
+     *
+     * @param row
+     *            the virtual row
+     *
+     * @return the sequence number, starting with 1
+     */
+    int getSequence(int row) {
+        int[] theFirstRows = getFirstRows();
+        return row - theFirstRows[getTemplateRow(theFirstRows, row)] + 1;
+    }
+
+    /**
+     * Finds the template row of a virtual row.
+     *
+     * @param theFirstRows
+     *            the first virtual row of each template row
+     * @param row
+     *            the virtual row
+     *
+     * @return the template row
+     */
+    private static int getTemplateRow(int[] theFirstRows, int row) {
+
+        if (row < 0 || row >= theFirstRows[theFirstRows.length - 1]) {
+            throw new IndexOutOfBoundsException("Row " + row + " doesn't exist.");
+        }
+
+        // the last template row starting at or before the row; templates generating no rows are skipped that way
+        int low = 0;
+        int high = theFirstRows.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (theFirstRows[middle] <= row) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the first virtual row of each template row, computing them if that hasn't been done before.
+     *
+     * @return the first virtual rows, followed by the total row count
+     */
+    private int[] getFirstRows() {
+        int[] theFirstRows = firstRows;
+        if (theFirstRows == null) {
+            synchronized (this) {
+                theFirstRows = firstRows;
+                if (theFirstRows == null) {
+                    theFirstRows = computeFirstRows();
+                    firstRows = theFirstRows;
+                }
+            }
+        }
+        return theFirstRows;
+    }
+
+    /**
+     * Reads the row count of each template row.
+     *
+     * @return the first virtual rows, followed by the total row count
+     */
+    private int[] computeFirstRows() {
+
+        int templateCount = wrapped.getRowCount();
+        int[] theFirstRows = new int[templateCount + 1];
+
+        try {
+            for (int row = 0; row < templateCount; row++) {
+                int count = getGeneratedRowCount(row);
+                if (count > Integer.MAX_VALUE - theFirstRows[row]) {
+                    throw new DataSetException("Row count " + count + " of row " + row + " of table "
+                            + metaData.getTableName() + " exceeds the maximum row count of " + Integer.MAX_VALUE
+                            + ".");
+                }
+                theFirstRows[row + 1] = theFirstRows[row] + count;
+            }
+        } catch (DataSetException e) {
+            throw new RuntimeException(e);
+        }
+
+        return theFirstRows;
+    }
+
+    /**
+     * Gets the number of rows generated by a template row.
+     *
+     * @param row
+     *            the template row
+     *
+     * @return the number of rows
+     *
+     * @throws DataSetException
+     *             if the value can't be read or isn't a non-negative integer within the range of <code>int</code>
+     */
+    private int getGeneratedRowCount(int row) throws DataSetException {
+
+        Object theValue = wrapped.getValue(row, generatorColumn);
+
+        if (theValue instanceof String field) {
+            ScriptInvocationPipeline pipeline = registry.matchPipeline(field);
+            if (pipeline != null) {
+                theValue = pipeline.evaluate(metaData.getTableName(), generatorColumn, row, field, null);
+            } else if (field.isBlank()) {
+                theValue = null;
+            } else {
+                try {
+                    theValue = Integer.valueOf(field.trim());
+                } catch (NumberFormatException e) {
+                    throw new DataSetException("Row count \"" + field + "\" of row " + row + " of table "
+                            + metaData.getTableName() + " isn't a number.", e);
+                }
+            }
+        }
+
+        if (theValue == null) {
+            return 1;
+        }
+        BigDecimal count = toBigDecimal(theValue);
+        if (count == null || count.signum() < 0) {
+            throw new DataSetException("Row count " + theValue + " of row " + row + " of table "
+                    + metaData.getTableName() + " isn't a non-negative number.");
+        }
+        try {
+            return count.intValueExact();
+        } catch (ArithmeticException e) {
+            throw new DataSetException("Row count " + theValue + " of row " + row + " of table "
+                    + metaData.getTableName() + " isn't an integer of at most " + Integer.MAX_VALUE + ".", e);
+        }
+    }
+
+    /**
+     * Converts a row count into a decimal without losing precision.
+     *
+     * @param theValue
+     *            the row count
+     *
+     * @return the decimal, or null if the value isn't a finite number
+     */
+    private static BigDecimal toBigDecimal(Object theValue) {
+        if (theValue instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (theValue instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (theValue instanceof Double || theValue instanceof Float) {
+            double doubleValue = ((Number) theValue).doubleValue();
+            return Double.isFinite(doubleValue) ? BigDecimal.valueOf(doubleValue) : null;
+        }
+        if (theValue instanceof Number number) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        return null;
+    }
+
+    /**
+     * Whether a table allows random access.
+     *
+     * @param table
+     *            the table
+     *
+     * @return true, if the row count of the table is known
+     */
+    private static boolean isRandomAccess(ITable table) {
+        try {
+            table.getRowCount();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of durations with power-of-two buckets, i.e. bucket <i>n</i> counts durations of up to
+ * 2<sup><i>n</i></sup> nanoseconds. Percentiles are reported as the upper bound of their bucket, so they are exact to a
+ * factor of two, which is enough to tell a slow script from a fast one.
+ */
+public class LatencyHistogram {
+
+    /** The number of buckets. */
+    private static final int BUCKETS = 64;
+
+    /** The counts per bucket. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /** The count. */
+    private final LongAdder count = new LongAdder();
+
+    /** The total nanos. */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /** The maximum nanos. */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos
+     *            the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(value <= 1 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value - 1));
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all recorded durations.
+     *
+     * @return the total nanos
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Gets the longest recorded duration.
+     *
+     * @return the max nanos
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets the mean of all recorded durations.
+     *
+     * @return the mean nanos, 0 if nothing was recorded
+     */
+    public long getMeanNanos() {
+        long theCount = getCount();
+        return theCount == 0 ? 0 : getTotalNanos() / theCount;
+    }
+
+    /**
+     * Gets an upper bound of the given percentile.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     *
+     * @return the upper bound of the bucket containing the percentile, in nanoseconds; 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long theCount = getCount();
+        if (theCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(theCount * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(i == 63 ? Long.MAX_VALUE : 1L << i, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Removes all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%dus, p50<=%dus, p99<=%dus, max=%dus", getCount(),
+                TimeUnit.NANOSECONDS.toMicros(getMeanNanos()), TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(50)),
+                TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(99)), TimeUnit.NANOSECONDS.toMicros(getMaxNanos()));
+    }
+}
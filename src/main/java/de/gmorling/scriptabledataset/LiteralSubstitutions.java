@@ -0,0 +1,105 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Replaces literal field values like DBUnit's <code>ReplacementDataSet</code>, but as part of the dispatch of
+ * {@link ScriptableTable}, so that no second decorator has to be stacked onto the data set. A field equal to a literal
+ * of an exact replacement is replaced by its value (which may be null, e.g. for <code>[NULL]</code>); otherwise all
+ * substring replacements are applied to the field in order.
+ * <p>
+ * The result is cached per distinct field value, up to {@value #MAXIMUM_CACHE_SIZE} values, so that repeated literals
+ * cost a single lookup.
+ */
+final class LiteralSubstitutions {
+
+    /** The maximum number of cached field values. */
+    static final int MAXIMUM_CACHE_SIZE = 10_000;
+
+    /** Stands for a null replacement, as the cache doesn't allow null values. */
+    private static final Object NULL = new Object();
+
+    /** The exact replacements by literal. */
+    private final Map<String, Object> exactReplacements = new LinkedHashMap<>();
+
+    /** The substring replacements by substring, in order. */
+    private final Map<String, String> substringReplacements = new LinkedHashMap<>();
+
+    /** The results by field value. */
+    private final ConcurrentMap<String, Object> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the substitutions of the given data set options.
+     *
+     * @param options
+     *            the options
+     */
+    LiteralSubstitutions(ScriptableDataSetOptions options) {
+        exactReplacements.putAll(options.getReplacements());
+        substringReplacements.putAll(options.getSubstringReplacements());
+    }
+
+    /**
+     * Whether any replacement is configured.
+     *
+     * @return true, if there are no replacements
+     */
+    boolean isEmpty() {
+        return exactReplacements.isEmpty() && substringReplacements.isEmpty();
+    }
+
+    /**
+     * Applies the replacements to a field value.
+     *
+     * @param field
+     *            the field value, not a script
+     *
+     * @return the replaced value, or the given value if no replacement applies
+     */
+    Object apply(String field) {
+
+        if (isEmpty()) {
+            return field;
+        }
+
+        Object theValue = cache.get(field);
+        if (theValue != null) {
+            return theValue == NULL ? null : theValue;
+        }
+
+        theValue = replace(field);
+        if (cache.size() < MAXIMUM_CACHE_SIZE) {
+            cache.putIfAbsent(field, theValue == null ? NULL : theValue);
+        }
+        return theValue;
+    }
+
+    /**
+     * Applies the replacements to a field value, without using the cache.
+     *
+     * @param field
+     *            the field value
+     *
+     * @return the replaced value
+     */
+    private Object replace(String field) {
+
+        if (exactReplacements.containsKey(field)) {
+            return exactReplacements.get(field);
+        }
+
+        String theValue = field;
+        for (Entry<String, String> oneReplacement : substringReplacements.entrySet()) {
+            theValue = theValue.replace(oneReplacement.getKey(), oneReplacement.getValue());
+        }
+        return theValue;
+    }
+}
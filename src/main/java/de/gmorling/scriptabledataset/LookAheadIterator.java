@@ -0,0 +1,162 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.Validate;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * Iterates over the tables of a data set like {@link ScriptableIterator}, but evaluates the scripts of upcoming tables
+ * on the shared look-ahead executor while the current table is consumed, e.g. inserted into the database by
+ * DBUnit. At most the current table and the configured number of upcoming tables are held at any time.
+ * <p>
+ * The wrapped iterator is only advanced by the consuming thread, so tables are returned in its order, no matter in
+ * which order their evaluation finishes. Tables not allowing random access (e.g. those of a streaming data set) are
+ * only valid until the wrapped iterator moves on, so the iterator doesn't look past such a table.
+ */
+class LookAheadIterator implements ITableIterator {
+
+    /** The wrapped. */
+    private final ITableIterator wrapped;
+
+    /** The registry. */
+    private final ScriptEngineRegistry registry;
+
+    /** The number of tables evaluated ahead of the current one. */
+    private final int lookAhead;
+
+    /** The current table and the upcoming tables, in iteration order. */
+    private final Deque<PendingTable> pending = new ArrayDeque<>();
+
+    /** The current table, or null if the iteration hasn't started or has ended. */
+    private PendingTable current;
+
+    /** Whether the wrapped iterator has no more tables. */
+    private boolean exhausted;
+
+    /**
+     * Creates a new LookAheadIterator.
+     *
+     * @param wrapped
+     *            the wrapped iterator
+     * @param registry
+     *            the registry shared by all tables of this iterator
+     */
+    LookAheadIterator(ITableIterator wrapped, ScriptEngineRegistry registry) {
+        this.wrapped = wrapped;
+        this.registry = registry;
+        this.lookAhead = registry.getOptions().getLookAhead();
+    }
+
+    @Override
+    public boolean next() throws DataSetException {
+        current = null;
+        fill();
+        current = pending.poll();
+        return current != null;
+    }
+
+    @Override
+    public ITableMetaData getTableMetaData() throws DataSetException {
+        Validate.validState(current != null, "No current table");
+        return current.table().getTableMetaData();
+    }
+
+    @Override
+    public ITable getTable() throws DataSetException {
+        Validate.validState(current != null, "No current table");
+
+        if (current.evaluation() == null) {
+            current.table().evaluateEagerly();
+            return current.table();
+        }
+
+        try {
+            current.evaluation().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataSetException("Interrupted while evaluating table "
+                    + current.table().getTableMetaData().getTableName(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataSetException dataSetException) {
+                throw dataSetException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+
+        return current.table();
+    }
+
+    /**
+     * Advances the wrapped iterator until the current table and the look-ahead tables are pending, submitting the
+     * evaluation of each table read.
+     *
+     * @throws DataSetException
+     *             if the wrapped iterator fails
+     */
+    private void fill() throws DataSetException {
+        while (!exhausted && pending.size() <= lookAhead
+                && (pending.isEmpty() || pending.peekLast().evaluation() != null)) {
+
+            if (!wrapped.next()) {
+                exhausted = true;
+                return;
+            }
+
+            ITable wrappedTable = wrapped.getTable();
+            ScriptableTable table = new ScriptableTable(wrappedTable, registry);
+
+            if (isRandomAccess(wrappedTable)) {
+                Future<Void> evaluation = SharedExecutors.getLookAheadExecutor().submit(() -> {
+                    table.evaluateEagerly();
+                    return null;
+                });
+                pending.add(new PendingTable(table, evaluation));
+            } else {
+                // evaluated by the consumer, before the wrapped iterator moves on
+                pending.add(new PendingTable(table, null));
+            }
+        }
+    }
+
+    /**
+     * Whether a table allows random access, i.e. remains valid once the wrapped iterator has moved on.
+     *
+     * @param table
+     *            the table
+     *
+     * @return true, if the row count of the table is known
+     */
+    private static boolean isRandomAccess(ITable table) {
+        try {
+            table.getRowCount();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A table read from the wrapped iterator.
+     *
+     * @param table
+     *            the table
+     * @param evaluation
+     *            the evaluation submitted to the look-ahead executor, or null if the table is evaluated by the consumer
+     */
+    private record PendingTable(ScriptableTable table, Future<Void> evaluation) {
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Finds the value registered for the prefix of a field. The prefixes are indexed by their first character once, so that
+ * fields not starting with any prefix (typically the vast majority) are rejected by a single array lookup.
+ * <p>
+ * If several prefixes match a field (e.g. "js:" and "js:x:"), the longest one wins. Matching doesn't allocate any
+ * objects.
+ *
+ * @param <T>
+ *            the type of the values registered for the prefixes
+ */
+final class PrefixMatcher<T> {
+
+    /** The number of characters indexed by {@link #asciiSlots}. */
+    private static final int ASCII = 128;
+
+    /** The slot of each ASCII first character in {@link #prefixes}, or -1. */
+    private final int[] asciiSlots = new int[ASCII];
+
+    /** The non-ASCII first characters, sorted. */
+    private final char[] otherFirstChars;
+
+    /** The slots of the non-ASCII first characters, in the order of {@link #otherFirstChars}. */
+    private final int[] otherSlots;
+
+    /** The prefixes per slot, longest first. */
+    private final String[][] prefixes;
+
+    /** The values per slot, in the order of {@link #prefixes}. */
+    private final Object[][] values;
+
+    /** The value of the empty prefix, matching any field not matched by another prefix, or null. */
+    private final T emptyPrefixValue;
+
+    /**
+     * Creates a new PrefixMatcher.
+     *
+     * @param valuesByPrefix
+     *            The values by prefix. May not be null.
+     */
+    PrefixMatcher(Map<String, T> valuesByPrefix) {
+
+        Map<Character, List<Entry<String, T>>> entriesByFirstChar = new TreeMap<>();
+        T theEmptyPrefixValue = null;
+
+        for (Entry<String, T> oneEntry : valuesByPrefix.entrySet()) {
+            if (oneEntry.getKey().isEmpty()) {
+                theEmptyPrefixValue = oneEntry.getValue();
+            } else {
+                entriesByFirstChar.computeIfAbsent(oneEntry.getKey().charAt(0), c -> new ArrayList<>()).add(oneEntry);
+            }
+        }
+        this.emptyPrefixValue = theEmptyPrefixValue;
+
+        Arrays.fill(asciiSlots, -1);
+        this.prefixes = new String[entriesByFirstChar.size()][];
+        this.values = new Object[entriesByFirstChar.size()][];
+
+        List<Character> others = new ArrayList<>();
+        int slot = 0;
+        for (Entry<Character, List<Entry<String, T>>> oneEntry : entriesByFirstChar.entrySet()) {
+
+            List<Entry<String, T>> entries = oneEntry.getValue();
+            entries.sort(Comparator.comparingInt((Entry<String, T> e) -> e.getKey().length()).reversed());
+
+            prefixes[slot] = new String[entries.size()];
+            values[slot] = new Object[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                prefixes[slot][i] = entries.get(i).getKey();
+                values[slot][i] = entries.get(i).getValue();
+            }
+
+            char firstChar = oneEntry.getKey();
+            if (firstChar < ASCII) {
+                asciiSlots[firstChar] = slot;
+            } else {
+                others.add(firstChar);
+            }
+            slot++;
+        }
+
+        // TreeMap order keeps the non-ASCII characters sorted for the binary search
+        this.otherFirstChars = new char[others.size()];
+        this.otherSlots = new int[others.size()];
+        for (int i = 0; i < others.size(); i++) {
+            otherFirstChars[i] = others.get(i);
+            otherSlots[i] = slot - others.size() + i;
+        }
+    }
+
+    /**
+     * Returns the value registered for the longest prefix the given field starts with.
+     *
+     * @param field
+     *            The field. May not be null.
+     *
+     * @return the value, or null if the field doesn't start with any prefix
+     */
+    @SuppressWarnings("unchecked")
+    T match(String field) {
+
+        if (!field.isEmpty()) {
+
+            int slot = getSlot(field.charAt(0));
+
+            if (slot >= 0) {
+                String[] candidates = prefixes[slot];
+                for (int i = 0; i < candidates.length; i++) {
+                    if (field.startsWith(candidates[i])) {
+                        return (T) values[slot][i];
+                    }
+                }
+            }
+        }
+
+        return emptyPrefixValue;
+    }
+
+    /**
+     * Gets the slot of the prefixes starting with the given character.
+     *
+     * @param firstChar
+     *            the first character
+     *
+     * @return the slot, or -1 if no prefix starts with that character
+     */
+    private int getSlot(char firstChar) {
+        if (firstChar < ASCII) {
+            return asciiSlots[firstChar];
+        }
+        int index = Arrays.binarySearch(otherFirstChars, firstChar);
+        return index >= 0 ? otherSlots[index] : -1;
+    }
+}
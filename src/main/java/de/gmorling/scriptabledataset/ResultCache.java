@@ -0,0 +1,667 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the script results of tables in files, so that they can be read by later runs instead of evaluating the
+ * scripts again (see {@link ScriptableDataSetOptions#getResultCacheDirectory()}).
+ * <p>
+ * Each table is stored in a file named after a SHA-256 hash of everything its results depend on: the contents of the
+ * wrapped table, the data set options affecting results (row generator column and replacements), all options of all
+ * configurations affecting results (language, prefix, row bindings, the classes and preludes of their handlers), the
+ * name and version of the cached configurations' engines and, if a cached script may read it, the evaluation epoch. So
+ * a stale file is never read; it just isn't used anymore. Files not used for a while are deleted once the directory
+ * holds more than {@value #MAX_FILES} of them. A file holds the converted results of all cached fields of the table in
+ * column order, each as a type tag followed by its binary representation, and is memory-mapped for reading. Only common
+ * value types (strings, numbers, booleans and dates) are supported; tables with results of other types aren't stored.
+ * <p>
+ * The cache never fails a data set: files which can't be read or written are only logged and the scripts are evaluated.
+ * Files are written to a temporary file first and then moved into place, so that several JVMs may share a directory.
+ */
+final class ResultCache {
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    /** The first bytes of every file, "SDRC". */
+    private static final int MAGIC = 0x53445243;
+
+    /** The version of the file format, part of every key. */
+    private static final int FORMAT_VERSION = 2;
+
+    /** The maximum number of files kept in the directory; the least recently used ones are deleted beyond. */
+    static final int MAX_FILES = 1000;
+
+    /** The file name extension of cache files. */
+    private static final String EXTENSION = ".bin";
+
+    /** The type tag of null. */
+    private static final byte NULL = 0;
+
+    /** The type tag of strings. */
+    private static final byte STRING = 1;
+
+    /** The type tag of integers. */
+    private static final byte INTEGER = 2;
+
+    /** The type tag of longs. */
+    private static final byte LONG = 3;
+
+    /** The type tag of doubles. */
+    private static final byte DOUBLE = 4;
+
+    /** The type tag of booleans. */
+    private static final byte BOOLEAN = 5;
+
+    /** The type tag of big decimals. */
+    private static final byte BIG_DECIMAL = 6;
+
+    /** The type tag of big integers. */
+    private static final byte BIG_INTEGER = 7;
+
+    /** The type tag of SQL timestamps. */
+    private static final byte TIMESTAMP = 8;
+
+    /** The type tag of SQL dates. */
+    private static final byte SQL_DATE = 9;
+
+    /** The type tag of SQL times. */
+    private static final byte SQL_TIME = 10;
+
+    /** The type tag of dates. */
+    private static final byte DATE = 11;
+
+    /** The type tag of floats. */
+    private static final byte FLOAT = 12;
+
+    /** The type tag of shorts. */
+    private static final byte SHORT = 13;
+
+    /** The type tag of bytes. */
+    private static final byte BYTE = 14;
+
+    /** The directory. */
+    private final Path directory;
+
+    /** The digest of the options of the registry's data set and configurations, computed upon the first key. */
+    private volatile RegistryDigest registryDigest;
+
+    /**
+     * Creates a new ResultCache.
+     *
+     * @param directory
+     *            the directory holding the files, created upon first write
+     */
+    ResultCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the key of a table and finds its cached fields, i.e. the fields with a script of a configuration
+     * caching its results.
+     *
+     * @param table
+     *            the wrapped table
+     * @param registry
+     *            the registry, the same for all tables of this cache
+     *
+     * @return the key, or null if the table has no cached fields
+     *
+     * @throws DataSetException
+     *             if the table can't be read
+     */
+    TableKey computeKey(ITable table, ScriptEngineRegistry registry) throws DataSetException {
+
+        MessageDigest digest = newDigest();
+        String tableName = table.getTableMetaData().getTableName();
+        Column[] columns = table.getTableMetaData().getColumns();
+        int rowCount = table.getRowCount();
+
+        update(digest, "scriptable-dataset-results/" + FORMAT_VERSION);
+        update(digest, tableName);
+        for (Column oneColumn : columns) {
+            update(digest, oneColumn.getColumnName());
+            update(digest, String.valueOf(oneColumn.getDataType()));
+        }
+        update(digest, Integer.toString(rowCount));
+
+        long[] fields = new long[16];
+        int fieldCount = 0;
+        boolean epochUsed = false;
+
+        for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+            for (int row = 0; row < rowCount; row++) {
+
+                Object theValue = table.getValue(row, columns[columnIndex].getColumnName());
+                if (theValue == null) {
+                    update(digest, "null");
+                    continue;
+                }
+                update(digest, theValue.getClass().getName());
+                update(digest, theValue.toString());
+
+                if (theValue instanceof String field) {
+                    ScriptableDataSetConfig config = registry.matchConfiguration(field);
+                    if (config != null && config.isResultCaching()) {
+                        if (fieldCount == fields.length) {
+                            fields = Arrays.copyOf(fields, fieldCount * 2);
+                        }
+                        fields[fieldCount++] = (long) row * columns.length + columnIndex;
+                        epochUsed |= field.indexOf(ScriptEngineRegistry.EPOCH, config.getPrefix().length()) >= 0;
+                    }
+                }
+            }
+        }
+
+        if (fieldCount == 0) {
+            return null;
+        }
+
+        RegistryDigest theRegistryDigest = getRegistryDigest(registry);
+        digest.update(theRegistryDigest.digest());
+
+        // only a key not depending on the epoch is found again by data sets using the current time as epoch
+        if (epochUsed || theRegistryDigest.epochReachable()) {
+            update(digest, registry.getEpoch().toString());
+        }
+
+        return new TableKey(HexFormat.of().formatHex(digest.digest()), tableName, columns,
+                Arrays.copyOf(fields, fieldCount));
+    }
+
+    /**
+     * Gets the digest of the options of the registry's data set and configurations, computing it if that hasn't been
+     * done before. The handlers are those of the registry's pipelines, so they are created once per registry.
+     *
+     * @param registry
+     *            the registry
+     *
+     * @return the digest
+     */
+    private RegistryDigest getRegistryDigest(ScriptEngineRegistry registry) {
+
+        RegistryDigest theRegistryDigest = registryDigest;
+        if (theRegistryDigest != null) {
+            return theRegistryDigest;
+        }
+
+        MessageDigest digest = newDigest();
+        boolean epochReachable = false;
+
+        ScriptableDataSetOptions options = registry.getOptions();
+        update(digest, String.valueOf(options.getRowGeneratorColumn()));
+        options.getReplacements().forEach((literal, replacement) -> {
+            update(digest, literal);
+            update(digest, replacement != null ? replacement.getClass().getName() : "null");
+            update(digest, String.valueOf(replacement));
+        });
+        options.getSubstringReplacements().forEach((substring, replacement) -> {
+            update(digest, substring);
+            update(digest, replacement);
+        });
+        for (ScriptableDataSetConfig oneConfig : registry.getConfigurations()) {
+            update(digest, oneConfig.getLanguageName());
+            update(digest, oneConfig.getPrefix());
+            update(digest, Boolean.toString(oneConfig.isRowBindings()));
+            for (ScriptInvocationHandler oneHandler : registry.getHandlers(oneConfig)) {
+                String prelude = oneHandler.getPrelude();
+                update(digest, oneHandler.getClass().getName());
+                update(digest, String.valueOf(prelude));
+                epochReachable |= prelude != null && prelude.contains(ScriptEngineRegistry.EPOCH);
+            }
+            if (oneConfig.isResultCaching()) {
+                update(digest, registry.getEngineDescription(oneConfig.getLanguageName()));
+                // with row bindings, scripts read the values of other fields, which may depend on the epoch
+                epochReachable |= oneConfig.isRowBindings();
+            }
+        }
+
+        theRegistryDigest = new RegistryDigest(digest.digest(), epochReachable);
+        registryDigest = theRegistryDigest;
+        return theRegistryDigest;
+    }
+
+    /**
+     * Reads the results of a table.
+     *
+     * @param key
+     *            the key of the table
+     *
+     * @return the results in the order of the cached fields, or null if no valid file exists for the key
+     */
+    Object[] load(TableKey key) {
+
+        Path file = getFile(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getInt() != key.fields().length) {
+                logger.warn("Ignoring result cache file {}, it doesn't match its key.", file);
+                return null;
+            }
+
+            Object[] values = new Object[key.fields().length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readValue(buffer);
+            }
+
+            touch(file);
+            logger.debug("Read {} results from {}.", values.length, file);
+            return values;
+        } catch (IOException | BufferUnderflowException e) {
+            logger.warn("Couldn't read result cache file {}, evaluating the scripts.", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the results of a table, unless one of them has a type which isn't supported, which is logged naming its
+     * column.
+     *
+     * @param key
+     *            the key of the table
+     * @param values
+     *            the converted results in the order of the cached fields
+     */
+    void store(TableKey key, Object[] values) {
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && getTag(values[i]) < 0) {
+                logger.warn("Not caching the results of table {}, column {} holds a result of unsupported type {}.",
+                        key.tableName(), key.columns()[key.getColumnIndex(i)].getColumnName(),
+                        values[i].getClass().getName());
+                return;
+            }
+        }
+
+        Path file = getFile(key);
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, key.hash(), ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(values.length);
+                for (Object oneValue : values) {
+                    writeValue(out, oneValue);
+                }
+            }
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote {} results to {}.", values.length, file);
+        } catch (IOException e) {
+            logger.warn("Couldn't write result cache file {}.", file, e);
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+        }
+
+        evict();
+    }
+
+    /**
+     * Marks a file as recently used, so that it is evicted last.
+     *
+     * @param file
+     *            the file
+     */
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            logger.debug("Couldn't update the modification time of {}.", file, e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used files, if the directory holds more than {@value #MAX_FILES} files. Files deleted
+     * concurrently, e.g. by another JVM sharing the directory, are skipped. Failures are only logged.
+     */
+    private void evict() {
+        try {
+            List<Path> files;
+            try (Stream<Path> entries = Files.list(directory)) {
+                files = entries.filter(f -> f.getFileName().toString().endsWith(EXTENSION)).toList();
+            }
+            if (files.size() <= MAX_FILES) {
+                return;
+            }
+
+            Map<Path, FileTime> lastUsed = new HashMap<>();
+            for (Path oneFile : files) {
+                try {
+                    lastUsed.put(oneFile, Files.getLastModifiedTime(oneFile));
+                } catch (IOException e) {
+                    // deleted meanwhile
+                }
+            }
+
+            List<Path> leastRecentlyUsed = new ArrayList<>(lastUsed.keySet());
+            leastRecentlyUsed.sort(Comparator.comparing(lastUsed::get));
+            for (Path oneFile : leastRecentlyUsed.subList(0, Math.max(0, leastRecentlyUsed.size() - MAX_FILES))) {
+                Files.deleteIfExists(oneFile);
+                logger.debug("Evicted result cache file {}.", oneFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't evict files from result cache directory {}.", directory, e);
+        }
+    }
+
+    /**
+     * Gets the file of a table.
+     *
+     * @param key
+     *            the key of the table
+     *
+     * @return the file
+     */
+    private Path getFile(TableKey key) {
+        return directory.resolve(key.hash() + EXTENSION);
+    }
+
+    /**
+     * Gets the type tag of a value.
+     *
+     * @param value
+     *            the value, not null
+     *
+     * @return the tag, or -1 if the type isn't supported
+     */
+    private static byte getTag(Object value) {
+        // subclasses of java.util.Date first
+        if (value instanceof Timestamp) {
+            return TIMESTAMP;
+        }
+        if (value instanceof java.sql.Date) {
+            return SQL_DATE;
+        }
+        if (value instanceof Time) {
+            return SQL_TIME;
+        }
+        if (value.getClass() == Date.class) {
+            return DATE;
+        }
+        if (value instanceof String) {
+            return STRING;
+        }
+        if (value instanceof Integer) {
+            return INTEGER;
+        }
+        if (value instanceof Long) {
+            return LONG;
+        }
+        if (value instanceof Double) {
+            return DOUBLE;
+        }
+        if (value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        if (value.getClass() == BigDecimal.class) {
+            return BIG_DECIMAL;
+        }
+        if (value.getClass() == BigInteger.class) {
+            return BIG_INTEGER;
+        }
+        if (value instanceof Float) {
+            return FLOAT;
+        }
+        if (value instanceof Short) {
+            return SHORT;
+        }
+        if (value instanceof Byte) {
+            return BYTE;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes a value with its type tag.
+     *
+     * @param out
+     *            the output
+     * @param value
+     *            the value, of a supported type or null
+     *
+     * @throws IOException
+     *             if the value can't be written
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+
+        byte tag = getTag(value);
+        out.writeByte(tag);
+
+        switch (tag) {
+            case STRING -> writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+            case INTEGER -> out.writeInt((Integer) value);
+            case LONG -> out.writeLong((Long) value);
+            case DOUBLE -> out.writeDouble((Double) value);
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case BIG_DECIMAL -> {
+                out.writeInt(((BigDecimal) value).scale());
+                writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+            }
+            case BIG_INTEGER -> writeBytes(out, ((BigInteger) value).toByteArray());
+            case TIMESTAMP -> {
+                out.writeLong(((Timestamp) value).getTime());
+                out.writeInt(((Timestamp) value).getNanos());
+            }
+            case SQL_DATE, SQL_TIME, DATE -> out.writeLong(((Date) value).getTime());
+            case FLOAT -> out.writeFloat((Float) value);
+            case SHORT -> out.writeShort((Short) value);
+            case BYTE -> out.writeByte((Byte) value);
+            default -> throw new IllegalStateException("Unsupported type " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a value with its type tag.
+     *
+     * @param buffer
+     *            the buffer
+     *
+     * @return the value
+     *
+     * @throws IOException
+     *             if the type tag is unknown
+     */
+    private static Object readValue(ByteBuffer buffer) throws IOException {
+
+        byte tag = buffer.get();
+
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> new String(readBytes(buffer), StandardCharsets.UTF_8);
+            case INTEGER -> buffer.getInt();
+            case LONG -> buffer.getLong();
+            case DOUBLE -> buffer.getDouble();
+            case BOOLEAN -> buffer.get() != 0;
+            case BIG_DECIMAL -> {
+                int scale = buffer.getInt();
+                yield new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+            }
+            case BIG_INTEGER -> new BigInteger(readBytes(buffer));
+            case TIMESTAMP -> {
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                yield timestamp;
+            }
+            case SQL_DATE -> new java.sql.Date(buffer.getLong());
+            case SQL_TIME -> new Time(buffer.getLong());
+            case DATE -> new Date(buffer.getLong());
+            case FLOAT -> buffer.getFloat();
+            case SHORT -> buffer.getShort();
+            case BYTE -> buffer.get();
+            default -> throw new IOException("Unknown type tag " + tag);
+        };
+    }
+
+    /**
+     * Writes a byte array preceded by its length.
+     *
+     * @param out
+     *            the output
+     * @param bytes
+     *            the bytes
+     *
+     * @throws IOException
+     *             if the bytes can't be written
+     */
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a byte array preceded by its length.
+     *
+     * @param buffer
+     *            the buffer
+     *
+     * @return the bytes
+     *
+     * @throws IOException
+     *             if the length is invalid
+     */
+    private static byte[] readBytes(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Adds a string to a digest, preceded by its length so that consecutive strings can't be confused.
+     *
+     * @param digest
+     *            the digest
+     * @param value
+     *            the string
+     */
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return the digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The digest of the options of a registry's data set and configurations.
+     *
+     * @param digest
+     *            the SHA-256 digest
+     * @param epochReachable
+     *            whether scripts may read the epoch other than by naming it, i.e. through a prelude or row bindings
+     */
+    private record RegistryDigest(byte[] digest, boolean epochReachable) {
+    }
+
+    /**
+     * The key of a table and its cached fields.
+     *
+     * @param hash
+     *            the hash of everything the results depend on, naming the file
+     * @param tableName
+     *            the table name
+     * @param columns
+     *            the columns of the table
+     * @param fields
+     *            the cached fields in column order, each as <code>row * columnCount + columnIndex</code>
+     */
+    record TableKey(String hash, String tableName, Column[] columns, long[] fields) {
+
+        /**
+         * Gets the row of a cached field.
+         *
+         * @param index
+         *            the index of the field among the cached fields
+         *
+         * @return the row
+         */
+        int getRow(int index) {
+            return (int) (fields[index] / columns.length);
+        }
+
+        /**
+         * Gets the column index of a cached field.
+         *
+         * @param index
+         *            the index of the field among the cached fields
+         *
+         * @return the column index
+         */
+        int getColumnIndex(int index) {
+            return (int) (fields[index] % columns.length);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.AbstractMap;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.SimpleScriptContext;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+
+/**
+ * The engine scope bindings of scripts evaluated with {@link ScriptableDataSetConfig#isRowBindings()}. Besides the
+ * engine's own bindings, they expose
+ * <ul>
+ * <li><b>row</b>, the index of the row containing the script,</li>
+ * <li><b>seq</b>, the number of the row among the rows generated by its template row, starting with 1 (see
+ * {@link GeneratedRowsTable}; always 1 for other rows),</li>
+ * <li><b>table</b>, the name of the table containing the script,</li>
+ * <li><b>{@value ScriptEngineRegistry#EPOCH}</b>, the evaluation epoch of the data set, and</li>
+ * <li>the value of each column of that row, which is known without evaluating a script, i.e. plain values and results
+ * already stored by a materialized {@link EvaluationMode} (or, when streaming, evaluated earlier in the row).</li>
+ * </ul>
+ * Values are looked up lazily upon access. There is one instance (and one script context) per thread, which is reset
+ * for every script, so that no maps are allocated per field, and unbound once the script is evaluated, so that it
+ * doesn't keep tables or engines reachable from long-lived threads. Assignments of scripts go to the engine's own
+ * bindings.
+ */
+final class RowBindings extends AbstractMap<String, Object> implements Bindings {
+
+    /** The name of the binding holding the row index. */
+    static final String ROW = "row";
+
+    /** The name of the binding holding the sequence number of a generated row. */
+    static final String SEQUENCE = "seq";
+
+    /** The name of the binding holding the table name. */
+    static final String TABLE = "table";
+
+    /** Marks a column, whose value isn't known without evaluating a script. */
+    static final Object ABSENT = new Object();
+
+    /** The bindings of the current thread. */
+    private static final ThreadLocal<RowBindings> CURRENT = ThreadLocal.withInitial(RowBindings::new);
+
+    /** The script context using these bindings as engine scope. */
+    private final SimpleScriptContext context = new SimpleScriptContext();
+
+    /** The engine scope bindings of the engine evaluating the script. */
+    private Bindings engineBindings;
+
+    /** The table name. */
+    private String tableName;
+
+    /** The row. */
+    private int row;
+
+    /** The evaluation epoch. */
+    private Date epoch;
+
+    /** The table containing the script, or null if streaming. */
+    private ScriptableTable table;
+
+    /** The column names, if streaming. */
+    private String[] columnNames;
+
+    /** The values of the row, if streaming. */
+    private Object[] values;
+
+    /** The registry to recognize unevaluated scripts, if streaming. */
+    private ScriptEngineRegistry registry;
+
+    /**
+     * Instantiates new row bindings.
+     */
+    private RowBindings() {
+        context.setBindings(this, ScriptContext.ENGINE_SCOPE);
+    }
+
+    /**
+     * Binds the bindings of the current thread to a row of a table.
+     *
+     * @param engine
+     *            the engine evaluating the script
+     * @param table
+     *            the table containing the script
+     * @param tableName
+     *            the table name
+     * @param row
+     *            the row containing the script
+     * @param epoch
+     *            the evaluation epoch
+     *
+     * @return the script context to evaluate the script with
+     */
+    static ScriptContext bind(ScriptEngine engine, ScriptableTable table, String tableName, int row, Date epoch) {
+        RowBindings bindings = CURRENT.get();
+        bindings.reset(engine, tableName, row, epoch);
+        bindings.table = table;
+        return bindings.context;
+    }
+
+    /**
+     * Binds the bindings of the current thread to a row emitted by a producer.
+     *
+     * @param engine
+     *            the engine evaluating the script
+     * @param registry
+     *            the registry to recognize unevaluated scripts
+     * @param tableName
+     *            the table name
+     * @param columnNames
+     *            the column names
+     * @param row
+     *            the row containing the script
+     * @param values
+     *            the values of the row, scripts evaluated so far replaced by their results
+     * @param epoch
+     *            the evaluation epoch
+     *
+     * @return the script context to evaluate the script with
+     */
+    static ScriptContext bind(ScriptEngine engine, ScriptEngineRegistry registry, String tableName,
+            String[] columnNames, int row, Object[] values, Date epoch) {
+        RowBindings bindings = CURRENT.get();
+        bindings.reset(engine, tableName, row, epoch);
+        bindings.registry = registry;
+        bindings.columnNames = columnNames;
+        bindings.values = values;
+        return bindings.context;
+    }
+
+    /**
+     * Unbinds the bindings of the current thread from the row, table and engine they were bound to by the evaluated
+     * script.
+     */
+    static void unbind() {
+        RowBindings bindings = CURRENT.get();
+        bindings.engineBindings = null;
+        bindings.tableName = null;
+        bindings.epoch = null;
+        bindings.table = null;
+        bindings.registry = null;
+        bindings.columnNames = null;
+        bindings.values = null;
+        bindings.context.setBindings(null, ScriptContext.GLOBAL_SCOPE);
+        bindings.context.setReader(null);
+        bindings.context.setWriter(null);
+        bindings.context.setErrorWriter(null);
+    }
+
+    /**
+     * Resets these bindings for a new script.
+     *
+     * @param engine
+     *            the engine evaluating the script
+     * @param theTableName
+     *            the table name
+     * @param theRow
+     *            the row
+     * @param theEpoch
+     *            the evaluation epoch
+     */
+    private void reset(ScriptEngine engine, String theTableName, int theRow, Date theEpoch) {
+        ScriptContext engineContext = engine.getContext();
+        engineBindings = engineContext.getBindings(ScriptContext.ENGINE_SCOPE);
+        context.setBindings(engineContext.getBindings(ScriptContext.GLOBAL_SCOPE), ScriptContext.GLOBAL_SCOPE);
+        context.setReader(engineContext.getReader());
+        context.setWriter(engineContext.getWriter());
+        context.setErrorWriter(engineContext.getErrorWriter());
+
+        tableName = theTableName;
+        row = theRow;
+        epoch = theEpoch;
+        table = null;
+        registry = null;
+        columnNames = null;
+        values = null;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object theValue = lookup(key);
+        return theValue != ABSENT ? theValue : engineBindings.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return lookup(key) != ABSENT || engineBindings.containsKey(key);
+    }
+
+    @Override
+    public Object put(String name, Object value) {
+        return engineBindings.put(name, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> toMerge) {
+        engineBindings.putAll(toMerge);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return engineBindings.remove(key);
+    }
+
+    /**
+     * Returns all bindings. Only built if an engine iterates the bindings (e.g. to declare them as variables), so all
+     * known values of the row are read.
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+
+        Map<String, Object> theValue = new HashMap<>(engineBindings);
+
+        if (table != null) {
+            try {
+                for (Column oneColumn : table.getTableMetaData().getColumns()) {
+                    putIfKnown(theValue, oneColumn.getColumnName());
+                }
+            } catch (DataSetException e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            for (String oneColumn : columnNames) {
+                putIfKnown(theValue, oneColumn);
+            }
+        }
+        theValue.put(ROW, row);
+        theValue.put(SEQUENCE, table != null ? table.getSequence(row) : 1);
+        theValue.put(TABLE, tableName);
+        theValue.put(ScriptEngineRegistry.EPOCH, epoch);
+
+        return theValue.entrySet();
+    }
+
+    /**
+     * Adds the value of a column to the given map, if it is known.
+     *
+     * @param map
+     *            the map
+     * @param column
+     *            the column name
+     */
+    private void putIfKnown(Map<String, Object> map, String column) {
+        Object theValue = lookup(column);
+        if (theValue != ABSENT) {
+            map.put(column, theValue);
+        }
+    }
+
+    /**
+     * Looks up one of the row's own bindings.
+     *
+     * @param key
+     *            the name of the binding
+     *
+     * @return the value, or {@link #ABSENT} if it isn't a known value of the row
+     */
+    private Object lookup(Object key) {
+
+        if (ROW.equals(key)) {
+            return row;
+        }
+        if (TABLE.equals(key)) {
+            return tableName;
+        }
+        if (ScriptEngineRegistry.EPOCH.equals(key)) {
+            return epoch;
+        }
+        if (SEQUENCE.equals(key)) {
+            return table != null ? table.getSequence(row) : 1;
+        }
+        if (!(key instanceof String column)) {
+            return ABSENT;
+        }
+        if (table != null) {
+            return table.getKnownValue(row, column);
+        }
+
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equals(column)) {
+                return values[i] instanceof String script && registry.isScript(script) ? ABSENT
+                        : values[i];
+            }
+        }
+        return ABSENT;
+    }
+}
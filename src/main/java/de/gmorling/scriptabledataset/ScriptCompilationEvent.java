@@ -0,0 +1,72 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for the compilation of a script. Only recorded for engines implementing
+ * {@link javax.script.Compilable}, upon a miss of the compiled script cache.
+ */
+@Name("de.gmorling.scriptabledataset.ScriptCompilation")
+@Label("Script Compilation")
+@Description("Compilation of a script contained in a field of a scriptable data set")
+@Category({ "DBUnit", "Scriptable DataSet" })
+@StackTrace(false)
+@Threshold("1 ms")
+final class ScriptCompilationEvent extends Event {
+
+    /** The prefix. */
+    @Label("Prefix")
+    String prefix;
+
+    /** The table name. */
+    @Label("Table")
+    String tableName;
+
+    /** The column name. */
+    @Label("Column")
+    String columnName;
+
+    /** The row. */
+    @Label("Row")
+    int row;
+
+    /** The script length. */
+    @Label("Script Length")
+    int scriptLength;
+
+    /**
+     * Ends the event and commits it, if it passes the recording's enabled and threshold settings.
+     *
+     * @param prefix
+     *            the prefix
+     * @param tableName
+     *            the table name
+     * @param columnName
+     *            the column name
+     * @param row
+     *            the row
+     * @param scriptLength
+     *            the length of the script, without prefix
+     */
+    void finish(String prefix, String tableName, String columnName, int row, int scriptLength) {
+        end();
+        if (shouldCommit()) {
+            this.prefix = prefix;
+            this.tableName = tableName;
+            this.columnName = columnName;
+            this.row = row;
+            this.scriptLength = scriptLength;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.ScriptEngine;
+
+/**
+ * Provides script engines of one language to concurrently evaluating threads, respecting the
+ * <code>THREADING</code> parameter of the engine factory:
+ * <ul>
+ * <li>If the factory declares any threading capability (<code>MULTITHREADED</code>, <code>THREAD-ISOLATED</code> or
+ * <code>STATELESS</code>), the primary engine is shared by all threads.</li>
+ * <li>Otherwise the engine isn't safe for concurrent use, and each thread borrows an engine of its own. Additional
+ * engines are created from the factory when needed, up to the maximum pool size.</li>
+ * </ul>
+ */
+class ScriptEnginePool {
+
+    /** The name of the engine factory parameter describing the threading capability. */
+    static final String THREADING = "THREADING";
+
+    /** The primary engine. */
+    private final PooledEngine primary;
+
+    /** Whether the primary engine can be shared by concurrent threads. */
+    private final boolean shared;
+
+    /** The maximum number of engines. */
+    private final int maximumSize;
+
+    /** The compiled script cache size for additional engines. */
+    private final int compiledScriptCacheSize;
+
+    /** The handler preludes to run into additional engines. */
+    private final List<String> preludes;
+
+    /** The evaluation epoch to bind in additional engines. */
+    private final Date epoch;
+
+    /** The idle engines. */
+    private final BlockingQueue<PooledEngine> idle;
+
+    /** The number of engines created so far. */
+    private final AtomicInteger created = new AtomicInteger(1);
+
+    /**
+     * Creates a new ScriptEnginePool.
+     *
+     * @param engine
+     *            the primary engine, as used for sequential evaluation
+     * @param cache
+     *            the compiled script cache of the primary engine
+     * @param compiledScriptCacheSize
+     *            the compiled script cache size for additional engines
+     * @param maximumSize
+     *            the maximum number of engines
+     * @param preludes
+     *            the handler preludes, already run into the primary engine
+     * @param epoch
+     *            the evaluation epoch
+     */
+    ScriptEnginePool(ScriptEngine engine, CompiledScriptCache cache, int compiledScriptCacheSize, int maximumSize,
+            List<String> preludes, Date epoch) {
+        this.primary = new PooledEngine(engine, cache);
+        this.shared = engine.getFactory().getParameter(THREADING) != null;
+        this.maximumSize = Math.max(1, maximumSize);
+        this.compiledScriptCacheSize = compiledScriptCacheSize;
+        this.preludes = List.copyOf(preludes);
+        this.epoch = epoch;
+        this.idle = new ArrayBlockingQueue<>(this.maximumSize);
+        this.idle.add(primary);
+    }
+
+    /**
+     * Whether all threads share the primary engine.
+     *
+     * @return true, if the engine factory declares a threading capability
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Borrows an engine, waiting for one to be released if the maximum number of engines is in use.
+     *
+     * @return the engine
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    PooledEngine acquire() throws InterruptedException {
+        if (shared) {
+            return primary;
+        }
+
+        PooledEngine engine = idle.poll();
+        if (engine != null) {
+            return engine;
+        }
+
+        if (created.getAndIncrement() < maximumSize) {
+            EngineCreationEvent creation = new EngineCreationEvent();
+            creation.begin();
+            ScriptEngine additional = primary.engine().getFactory().getScriptEngine();
+            creation.finish(primary.engine().getFactory().getLanguageName(), additional);
+            // additional engines belong to the data set, even if the primary engine is shared
+            additional.put(ScriptEngineRegistry.EPOCH, epoch);
+            ScriptInvocationPipeline.runPreludes(additional, preludes);
+            return new PooledEngine(additional, new CompiledScriptCache(additional, compiledScriptCacheSize));
+        }
+        created.decrementAndGet();
+
+        return idle.take();
+    }
+
+    /**
+     * Returns a borrowed engine to the pool.
+     *
+     * @param engine
+     *            the engine
+     */
+    void release(PooledEngine engine) {
+        if (!shared) {
+            idle.add(engine);
+        }
+    }
+
+    /**
+     * A script engine together with the cache of the scripts compiled by it.
+     *
+     * @param engine
+     *            the engine
+     * @param cache
+     *            the compiled script cache
+     */
+    record PooledEngine(ScriptEngine engine, CompiledScriptCache cache) {
+    }
+}
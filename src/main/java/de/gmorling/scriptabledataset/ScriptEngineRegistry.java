@@ -0,0 +1,545 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler;
+import de.gmorling.scriptabledataset.handlers.StandardHandlerConfig;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the script engines and handlers for a list of configurations, so that they can be shared by all tables of a
+ * data set instead of being looked up again for every table.
+ * <p>
+ * Engines are started lazily: the engine of a configuration is resolved (and its handlers are initialized) only when
+ * the first field with its prefix is seen, so that e.g. JRuby isn't started for data sets not using it. Configurations
+ * with {@link ScriptableDataSetConfig#isPrewarm()} are resolved ahead of time on a background thread instead. Each
+ * scripting language is resolved only once, even if several configurations (e.g. with different prefixes) use the same
+ * language.
+ * <p>
+ * All scripts see a binding named {@value #EPOCH}, holding the point in time of the data set load as
+ * <code>java.util.Date</code>. It is bound in the engines of the data set, or exposed by the evaluation context for
+ * engines shared with other data sets (see {@link ScriptableDataSetConfig#isSharedEngine()}). Scripts using it
+ * instead of the clock (e.g. <code>groovy:epoch - 14</code>) yield the same value for every field, and may be folded
+ * by {@link ScriptableDataSetConfig#isConstantFolding()}.
+ */
+public class ScriptEngineRegistry {
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ScriptEngineRegistry.class);
+
+    /** The name of the binding holding the evaluation epoch. */
+    public static final String EPOCH = "epoch";
+
+    /** The configurations. */
+    private final List<ScriptableDataSetConfig> configurations;
+
+    /** The evaluation epoch. */
+    private final Instant epoch;
+
+    /** The options of the data set. */
+    private final ScriptableDataSetOptions options;
+
+    /** The pipeline slots by prefix, in the order of the configurations. */
+    private final Map<String, PipelineSlot> slotsByPrefix = new LinkedHashMap<>();
+
+    /** The engine slots by language, created upon first usage of the language. */
+    private final Map<String, EngineSlot> enginesByLanguage = new ConcurrentHashMap<>();
+
+    /** The lock guarding the creation of the script engine manager. */
+    private final Object managerLock = new Object();
+
+    /** The script engine manager, created upon first usage. */
+    private volatile ScriptEngineManager manager;
+
+    /** The prefix matcher. */
+    private final PrefixMatcher<PipelineSlot> prefixMatcher;
+
+    /** The replacements of literal fields. */
+    private final LiteralSubstitutions substitutions;
+
+    /** The cache of script results across runs, or null if no directory is given or no configuration caches. */
+    private final ResultCache resultCache;
+
+    /** The descriptions of the engines by language, looked up so far. */
+    private final Map<String, String> engineDescriptionsByLanguage = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new ScriptEngineRegistry for the given configurations. The current time is used as evaluation epoch.
+     *
+     * @param configurations
+     *            A list with configurations. May not be null.
+     */
+    public ScriptEngineRegistry(List<ScriptableDataSetConfig> configurations) {
+        this(configurations, Instant.now());
+    }
+
+    /**
+     * Creates a new ScriptEngineRegistry for the given configurations.
+     *
+     * @param configurations
+     *            A list with configurations. May not be null.
+     * @param epoch
+     *            The evaluation epoch exposed to all scripts, e.g. a fixed point in time for reproducible data sets.
+     *            May not be null.
+     */
+    public ScriptEngineRegistry(List<ScriptableDataSetConfig> configurations, Instant epoch) {
+        this(configurations, epoch, ScriptableDataSetOptions.defaults());
+    }
+
+    /**
+     * Creates a new ScriptEngineRegistry for the given configurations and data set options.
+     *
+     * @param configurations
+     *            A list with configurations. May not be null.
+     * @param epoch
+     *            The evaluation epoch exposed to all scripts, e.g. a fixed point in time for reproducible data sets.
+     *            May not be null.
+     * @param options
+     *            The options of the data set. May not be null.
+     *
+     * @throws IllegalArgumentException
+     *             if a row generator column is given, but no configuration uses row bindings
+     */
+    public ScriptEngineRegistry(List<ScriptableDataSetConfig> configurations, Instant epoch,
+            ScriptableDataSetOptions options) {
+
+        Objects.requireNonNull(epoch);
+        Objects.requireNonNull(options);
+
+        this.configurations = List.copyOf(configurations);
+        this.epoch = epoch;
+        this.options = options;
+
+        Validate.isTrue(
+                options.getRowGeneratorColumn() == null
+                        || this.configurations.stream().anyMatch(ScriptableDataSetConfig::isRowBindings),
+                "Row generators require row bindings");
+
+        List<PipelineSlot> prewarmed = new ArrayList<>();
+        for (ScriptableDataSetConfig oneConfig : this.configurations) {
+            PipelineSlot slot = new PipelineSlot(oneConfig);
+            slotsByPrefix.put(oneConfig.getPrefix(), slot);
+            if (oneConfig.isPrewarm()) {
+                prewarmed.add(slot);
+            }
+        }
+
+        prefixMatcher = new PrefixMatcher<>(slotsByPrefix);
+        substitutions = new LiteralSubstitutions(options);
+        resultCache = options.getResultCacheDirectory() != null
+                && this.configurations.stream().anyMatch(ScriptableDataSetConfig::isResultCaching)
+                        ? new ResultCache(options.getResultCacheDirectory())
+                        : null;
+
+        if (!prewarmed.isEmpty()) {
+            Thread prewarmer = new Thread(() -> prewarm(prewarmed), "scriptable-dataset-prewarm");
+            prewarmer.setDaemon(true);
+            prewarmer.start();
+        }
+    }
+
+    /**
+     * Gets the configurations.
+     *
+     * @return the configurations
+     */
+    public List<ScriptableDataSetConfig> getConfigurations() {
+        return configurations;
+    }
+
+    /**
+     * Gets the evaluation epoch, as exposed to scripts by the binding {@value #EPOCH}.
+     *
+     * @return the evaluation epoch
+     */
+    public Instant getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Gets the options of the data set.
+     *
+     * @return the options
+     */
+    public ScriptableDataSetOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Gets the engines by prefix, in the order of the configurations. Resolves all engines not resolved yet.
+     *
+     * @return the engines by prefix
+     */
+    public Map<String, ScriptEngine> getEnginesByPrefix() {
+        Map<String, ScriptEngine> enginesByPrefix = new LinkedHashMap<>();
+        for (PipelineSlot oneSlot : slotsByPrefix.values()) {
+            enginesByPrefix.put(oneSlot.configuration.getPrefix(), oneSlot.get().getEngine());
+        }
+        return Collections.unmodifiableMap(enginesByPrefix);
+    }
+
+    /**
+     * Returns the pipeline of the configured prefix the given field starts with, resolving its engine if that hasn't
+     * been done before. If several prefixes match, the longest one is used.
+     *
+     * @param field
+     *            The field. May not be null.
+     *
+     * @return the pipeline, or null if the field doesn't start with any configured prefix
+     */
+    ScriptInvocationPipeline matchPipeline(String field) {
+        PipelineSlot slot = prefixMatcher.match(field);
+        return slot != null ? slot.get() : null;
+    }
+
+    /**
+     * Returns the configuration of the prefix the given field starts with, without resolving its engine. If several
+     * prefixes match, the longest one is used.
+     *
+     * @param field
+     *            The field. May not be null.
+     *
+     * @return the configuration, or null if the field doesn't start with any configured prefix
+     */
+    ScriptableDataSetConfig matchConfiguration(String field) {
+        PipelineSlot slot = prefixMatcher.match(field);
+        return slot != null ? slot.configuration : null;
+    }
+
+    /**
+     * Whether the given field starts with any configured prefix. Doesn't resolve any engine.
+     *
+     * @param field
+     *            The field. May not be null.
+     *
+     * @return true, if the field is a script
+     */
+    boolean isScript(String field) {
+        return prefixMatcher.match(field) != null;
+    }
+
+    /**
+     * Applies the replacements of the data set options to a field which isn't a script.
+     *
+     * @param field
+     *            The field. May not be null.
+     *
+     * @return the replaced value, or the given field if no replacement applies
+     */
+    Object substitute(String field) {
+        return substitutions.apply(field);
+    }
+
+    /**
+     * Whether the data set options give any literal replacement.
+     *
+     * @return true, if fields which aren't scripts may be replaced
+     */
+    boolean hasSubstitutions() {
+        return !substitutions.isEmpty();
+    }
+
+    /**
+     * Gets the pipeline for the given prefix, resolving its engine if that hasn't been done before.
+     *
+     * @param prefix
+     *            the prefix
+     *
+     * @return the pipeline, or null if no configuration exists for that prefix
+     */
+    ScriptInvocationPipeline getPipeline(String prefix) {
+        PipelineSlot slot = slotsByPrefix.get(prefix);
+        return slot != null ? slot.get() : null;
+    }
+
+    /**
+     * Whether any configuration evaluates all scripts of a table at once, which includes configurations caching their
+     * results.
+     *
+     * @return true, if at least one configuration uses an eager evaluation mode or caches its results
+     */
+    boolean isEager() {
+        for (ScriptableDataSetConfig oneConfig : configurations) {
+            if (oneConfig.getEvaluationMode().isEager() || resultCache != null && oneConfig.isResultCaching()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the handlers of a configuration, creating them if that hasn't been done before. These are the handlers its
+     * pipeline is created with; its engine isn't resolved.
+     *
+     * @param config
+     *            a configuration of this registry
+     *
+     * @return the handlers in preInvoke order
+     */
+    List<ScriptInvocationHandler> getHandlers(ScriptableDataSetConfig config) {
+        return slotsByPrefix.get(config.getPrefix()).getHandlers();
+    }
+
+    /**
+     * Gets the cache of script results across runs.
+     *
+     * @return the cache, or null if no directory is given or no configuration caches its results
+     */
+    ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Describes the engine of a language by name and version, as given by its factory. The engine itself isn't started.
+     *
+     * @param languageName
+     *            the language name
+     *
+     * @return the description, or the language name if no engine is found for it
+     */
+    String getEngineDescription(String languageName) {
+        return engineDescriptionsByLanguage.computeIfAbsent(languageName, language -> {
+            for (ScriptEngineFactory oneFactory : getManager().getEngineFactories()) {
+                if (oneFactory.getNames().contains(language)) {
+                    return oneFactory.getEngineName() + " " + oneFactory.getEngineVersion();
+                }
+            }
+            return language;
+        });
+    }
+
+    /**
+     * Gets the script engine manager, creating it if that hasn't been done before.
+     *
+     * @return the script engine manager
+     */
+    private ScriptEngineManager getManager() {
+        ScriptEngineManager theManager = manager;
+        if (theManager == null) {
+            synchronized (managerLock) {
+                theManager = manager;
+                if (theManager == null) {
+                    theManager = new ScriptEngineManager();
+                    manager = theManager;
+                }
+            }
+        }
+        return theManager;
+    }
+
+    /**
+     * Resolves the engine of a configuration and creates its pipeline. Only the slot of the configuration and the
+     * engine slot of its language are locked meanwhile, so e.g. a pre-warmed JRuby engine doesn't block the
+     * configurations of other languages.
+     *
+     * @param config
+     *            the configuration
+     * @param handlers
+     *            the handlers of the configuration
+     *
+     * @return the pipeline
+     */
+    private ScriptInvocationPipeline createPipeline(ScriptableDataSetConfig config,
+            List<ScriptInvocationHandler> handlers) {
+
+        ScriptEngine engine;
+
+        if (config.isSharedEngine()) {
+            // the epoch is exposed by the pipeline, as other data sets use the engine as well
+            engine = SharedEngines.get(config.getLanguageName());
+        } else {
+            engine = enginesByLanguage.computeIfAbsent(config.getLanguageName(), EngineSlot::new).get();
+        }
+
+        for (ScriptInvocationHandler oneHandler : handlers) {
+            oneHandler.setScriptEngine(engine);
+        }
+
+        return new ScriptInvocationPipeline(config, engine, handlers, Date.from(epoch));
+    }
+
+    /**
+     * Creates the engine for a language.
+     *
+     * @param manager
+     *            the script engine manager
+     * @param languageName
+     *            the language name
+     *
+     * @return the engine
+     */
+    static ScriptEngine createEngine(ScriptEngineManager manager, String languageName) {
+
+        EngineCreationEvent creation = new EngineCreationEvent();
+        creation.begin();
+        ScriptEngine engine = manager.getEngineByName(languageName);
+        creation.finish(languageName, engine);
+
+        if (engine == null) {
+            throw new RuntimeException("No scripting engine found for language \"" + languageName + "\".");
+        }
+
+        logger.info("Registered scripting engine {} for language {}.", engine, languageName);
+
+        return engine;
+    }
+
+    /**
+     * Resolves the engines of the given slots, as done on the background thread for configurations to be pre-warmed.
+     * Failures are only logged, they are raised again when a field with the prefix is evaluated.
+     *
+     * @param slots
+     *            the slots
+     */
+    private void prewarm(List<PipelineSlot> slots) {
+        for (PipelineSlot oneSlot : slots) {
+            try {
+                oneSlot.get();
+            } catch (RuntimeException e) {
+                logger.warn("Couldn't pre-warm engine for prefix {}.", oneSlot.configuration.getPrefix(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns a list with new instances of all standard handlers registered for the language of the config and the
+     * custom handlers of the config, i.e. new instances from its handler providers and its handler instances.
+     *
+     * @param config
+     *            A config object.
+     *
+     * @return A list with handlers. Never null.
+     */
+    static List<ScriptInvocationHandler> getAllHandlers(ScriptableDataSetConfig config) {
+
+        List<ScriptInvocationHandler> theValue = new ArrayList<>(
+                StandardHandlerConfig.createStandardHandlersByLanguage(config.getLanguageName()));
+
+        // custom handlers
+        theValue.addAll(config.createHandlers());
+
+        return theValue;
+    }
+
+    /**
+     * Holds the pipeline of one configuration, created upon first usage.
+     */
+    private final class PipelineSlot {
+
+        /** The configuration. */
+        private final ScriptableDataSetConfig configuration;
+
+        /** The lock guarding the creation of the handlers, so that it doesn't wait for the engine. */
+        private final Object handlersLock = new Object();
+
+        /** The handlers, or null if not created yet. */
+        private List<ScriptInvocationHandler> handlers;
+
+        /** The pipeline, or null if not created yet. */
+        private volatile ScriptInvocationPipeline pipeline;
+
+        /**
+         * Instantiates a new pipeline slot.
+         *
+         * @param configuration
+         *            the configuration
+         */
+        private PipelineSlot(ScriptableDataSetConfig configuration) {
+            this.configuration = configuration;
+        }
+
+        /**
+         * Gets the pipeline, creating it if that hasn't been done before.
+         *
+         * @return the pipeline
+         */
+        private ScriptInvocationPipeline get() {
+            ScriptInvocationPipeline thePipeline = pipeline;
+            if (thePipeline == null) {
+                synchronized (this) {
+                    thePipeline = pipeline;
+                    if (thePipeline == null) {
+                        thePipeline = createPipeline(configuration, getHandlers());
+                        pipeline = thePipeline;
+                    }
+                }
+            }
+            return thePipeline;
+        }
+
+        /**
+         * Gets the handlers, creating them if that hasn't been done before.
+         *
+         * @return the handlers
+         */
+        private List<ScriptInvocationHandler> getHandlers() {
+            synchronized (handlersLock) {
+                if (handlers == null) {
+                    handlers = getAllHandlers(configuration);
+                }
+                return handlers;
+            }
+        }
+    }
+
+    /**
+     * Holds the engine of one language, created upon first usage and shared by all configurations of the language.
+     */
+    private final class EngineSlot {
+
+        /** The language name. */
+        private final String languageName;
+
+        /** The engine, or null if not created yet. */
+        private volatile ScriptEngine engine;
+
+        /**
+         * Instantiates a new engine slot.
+         *
+         * @param languageName
+         *            the language name
+         */
+        private EngineSlot(String languageName) {
+            this.languageName = languageName;
+        }
+
+        /**
+         * Gets the engine, creating it if that hasn't been done before.
+         *
+         * @return the engine
+         */
+        private ScriptEngine get() {
+            ScriptEngine theEngine = engine;
+            if (theEngine == null) {
+                synchronized (this) {
+                    theEngine = engine;
+                    if (theEngine == null) {
+                        theEngine = createEngine(getManager(), languageName);
+                        theEngine.put(EPOCH, Date.from(epoch));
+                        engine = theEngine;
+                    }
+                }
+            }
+            return theEngine;
+        }
+    }
+}
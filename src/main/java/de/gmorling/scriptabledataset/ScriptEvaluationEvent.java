@@ -0,0 +1,245 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import lombok.ToString;
+
+/**
+ * Describes the evaluation of one scripted field, as passed to a {@link ScriptEvaluationListener}. All durations are
+ * given in nanoseconds.
+ */
+@ToString
+public class ScriptEvaluationEvent {
+
+    /**
+     * The outcome of the compiled script cache lookup.
+     */
+    public enum CacheResult {
+
+        /** The compiled script was found in the cache. */
+        HIT,
+
+        /** The script was compiled and added to the cache. */
+        MISS,
+
+        /** The engine can't compile scripts or the cache is disabled, the script was evaluated from its source. */
+        NOT_CACHED
+    }
+
+    /** The table name. */
+    private final String tableName;
+
+    /** The column name. */
+    private final String columnName;
+
+    /** The row. */
+    private final int row;
+
+    /** The prefix. */
+    private final String prefix;
+
+    /** The language name. */
+    private final String languageName;
+
+    /** The length of the script, without prefix and before any handler was applied. */
+    private final int scriptLength;
+
+    /** The pre invoke nanos. */
+    private long preInvokeNanos;
+
+    /** The compile nanos. */
+    private long compileNanos;
+
+    /** The eval nanos. */
+    private long evalNanos;
+
+    /** The post invoke nanos. */
+    private long postInvokeNanos;
+
+    /** The cache result. */
+    private CacheResult cacheResult = CacheResult.NOT_CACHED;
+
+    /**
+     * Creates a new ScriptEvaluationEvent.
+     *
+     * @param tableName
+     *            the table name
+     * @param columnName
+     *            the column name
+     * @param row
+     *            the row
+     * @param configuration
+     *            the configuration of the script's prefix
+     * @param scriptLength
+     *            the script length
+     */
+    ScriptEvaluationEvent(String tableName, String columnName, int row, ScriptableDataSetConfig configuration,
+            int scriptLength) {
+        this.tableName = tableName;
+        this.columnName = columnName;
+        this.row = row;
+        this.prefix = configuration.getPrefix();
+        this.languageName = configuration.getLanguageName();
+        this.scriptLength = scriptLength;
+    }
+
+    /**
+     * Gets the table name.
+     *
+     * @return the table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Gets the column name.
+     *
+     * @return the column name
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Gets the row.
+     *
+     * @return the row
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Gets the prefix.
+     *
+     * @return the prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Gets the language name.
+     *
+     * @return the language name
+     */
+    public String getLanguageName() {
+        return languageName;
+    }
+
+    /**
+     * Gets the length of the script, without prefix and before any handler was applied.
+     *
+     * @return the script length
+     */
+    public int getScriptLength() {
+        return scriptLength;
+    }
+
+    /**
+     * Gets the time spent in the preInvoke methods of all handlers.
+     *
+     * @return the pre invoke nanos
+     */
+    public long getPreInvokeNanos() {
+        return preInvokeNanos;
+    }
+
+    /**
+     * Gets the time spent compiling the script, 0 unless the cache result is {@link CacheResult#MISS}.
+     *
+     * @return the compile nanos
+     */
+    public long getCompileNanos() {
+        return compileNanos;
+    }
+
+    /**
+     * Gets the time spent executing the script.
+     *
+     * @return the eval nanos
+     */
+    public long getEvalNanos() {
+        return evalNanos;
+    }
+
+    /**
+     * Gets the time spent in the postInvoke methods of all handlers.
+     *
+     * @return the post invoke nanos
+     */
+    public long getPostInvokeNanos() {
+        return postInvokeNanos;
+    }
+
+    /**
+     * Gets the total time spent for this field.
+     *
+     * @return the total nanos
+     */
+    public long getTotalNanos() {
+        return preInvokeNanos + compileNanos + evalNanos + postInvokeNanos;
+    }
+
+    /**
+     * Gets the cache result.
+     *
+     * @return the cache result
+     */
+    public CacheResult getCacheResult() {
+        return cacheResult;
+    }
+
+    /**
+     * Sets the pre invoke nanos.
+     *
+     * @param preInvokeNanos
+     *            the new pre invoke nanos
+     */
+    void setPreInvokeNanos(long preInvokeNanos) {
+        this.preInvokeNanos = preInvokeNanos;
+    }
+
+    /**
+     * Sets the compile nanos.
+     *
+     * @param compileNanos
+     *            the new compile nanos
+     */
+    void setCompileNanos(long compileNanos) {
+        this.compileNanos = compileNanos;
+    }
+
+    /**
+     * Sets the eval nanos.
+     *
+     * @param evalNanos
+     *            the new eval nanos
+     */
+    void setEvalNanos(long evalNanos) {
+        this.evalNanos = evalNanos;
+    }
+
+    /**
+     * Sets the post invoke nanos.
+     *
+     * @param postInvokeNanos
+     *            the new post invoke nanos
+     */
+    void setPostInvokeNanos(long postInvokeNanos) {
+        this.postInvokeNanos = postInvokeNanos;
+    }
+
+    /**
+     * Sets the cache result.
+     *
+     * @param cacheResult
+     *            the new cache result
+     */
+    void setCacheResult(CacheResult cacheResult) {
+        this.cacheResult = cacheResult;
+    }
+}
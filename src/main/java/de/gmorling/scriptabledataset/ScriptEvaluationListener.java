@@ -0,0 +1,28 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+/**
+ * Gets notified about every script evaluated for a {@link ScriptableDataSetConfig} it is registered with. This can be
+ * used to find out which tables, columns or languages make a data set slow to load.
+ * <p>
+ * {@link ScriptEvaluationMetrics} collects the events in memory and prints a summary. Other implementations can forward
+ * the events to a metrics library, e.g. to a Micrometer <code>Timer</code> per prefix via
+ * <code>timer.record(event.getEvalNanos(), TimeUnit.NANOSECONDS)</code>.
+ * <p>
+ * Listeners may be called by several threads at once (see {@link EvaluationMode#PARALLEL}) and should be thread-safe.
+ * If no listener is registered, no timings are taken at all.
+ */
+@FunctionalInterface
+public interface ScriptEvaluationListener {
+
+    /**
+     * Will be called after a script has been evaluated and all handlers have been applied.
+     *
+     * @param event
+     *            Describes the evaluated field and the time spent in each step.
+     */
+    void scriptEvaluated(ScriptEvaluationEvent event);
+}
@@ -0,0 +1,219 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ScriptEvaluationListener} collecting evaluation counts per table, column and prefix, latency histograms and
+ * cache statistics in memory. The same instance can be registered with several configurations.
+ *
+ * <pre>
+ * ScriptEvaluationMetrics metrics = new ScriptEvaluationMetrics();
+ * IDataSet dataSet = new ScriptableDataSet(wrapped,
+ *         ScriptableDataSetConfig.builder(&quot;groovy&quot;, &quot;groovy:&quot;).listener(metrics).build());
+ * ...
+ * metrics.printSummary(System.out);
+ * </pre>
+ */
+public class ScriptEvaluationMetrics implements ScriptEvaluationListener {
+
+    /** The evaluation counts by table. */
+    private final ConcurrentMap<String, LongAdder> evaluationsByTable = new ConcurrentHashMap<>();
+
+    /** The evaluation counts by column, keyed by table and column name. */
+    private final ConcurrentMap<String, LongAdder> evaluationsByColumn = new ConcurrentHashMap<>();
+
+    /** The eval latencies by prefix. */
+    private final ConcurrentMap<String, LatencyHistogram> evalLatenciesByPrefix = new ConcurrentHashMap<>();
+
+    /** The compile latencies. */
+    private final LatencyHistogram compileLatencies = new LatencyHistogram();
+
+    /** The pre invoke latencies. */
+    private final LatencyHistogram preInvokeLatencies = new LatencyHistogram();
+
+    /** The post invoke latencies. */
+    private final LatencyHistogram postInvokeLatencies = new LatencyHistogram();
+
+    /** The cache hits. */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /** The cache misses. */
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @Override
+    public void scriptEvaluated(ScriptEvaluationEvent event) {
+        evaluationsByTable.computeIfAbsent(event.getTableName(), k -> new LongAdder()).increment();
+        evaluationsByColumn.computeIfAbsent(event.getTableName() + "." + event.getColumnName(), k -> new LongAdder())
+                .increment();
+        evalLatenciesByPrefix.computeIfAbsent(event.getPrefix(), k -> new LatencyHistogram())
+                .record(event.getEvalNanos());
+        preInvokeLatencies.record(event.getPreInvokeNanos());
+        postInvokeLatencies.record(event.getPostInvokeNanos());
+
+        switch (event.getCacheResult()) {
+            case HIT:
+                cacheHits.increment();
+                break;
+            case MISS:
+                cacheMisses.increment();
+                compileLatencies.record(event.getCompileNanos());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Gets the evaluation counts by table name.
+     *
+     * @return the evaluation counts, sorted by table name
+     */
+    public Map<String, Long> getEvaluationsByTable() {
+        return snapshot(evaluationsByTable);
+    }
+
+    /**
+     * Gets the evaluation counts by column, keyed by <code>table.column</code>.
+     *
+     * @return the evaluation counts, sorted by table and column name
+     */
+    public Map<String, Long> getEvaluationsByColumn() {
+        return snapshot(evaluationsByColumn);
+    }
+
+    /**
+     * Gets the eval latencies by prefix.
+     *
+     * @return the eval latencies, sorted by prefix
+     */
+    public Map<String, LatencyHistogram> getEvalLatenciesByPrefix() {
+        return new TreeMap<>(evalLatenciesByPrefix);
+    }
+
+    /**
+     * Gets the compile latencies of all scripts compiled upon a cache miss.
+     *
+     * @return the compile latencies
+     */
+    public LatencyHistogram getCompileLatencies() {
+        return compileLatencies;
+    }
+
+    /**
+     * Gets the latencies of the preInvoke handler chains.
+     *
+     * @return the pre invoke latencies
+     */
+    public LatencyHistogram getPreInvokeLatencies() {
+        return preInvokeLatencies;
+    }
+
+    /**
+     * Gets the latencies of the postInvoke handler chains.
+     *
+     * @return the post invoke latencies
+     */
+    public LatencyHistogram getPostInvokeLatencies() {
+        return postInvokeLatencies;
+    }
+
+    /**
+     * Gets the number of compiled scripts found in the cache.
+     *
+     * @return the cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Gets the number of scripts compiled because they weren't found in the cache.
+     *
+     * @return the cache misses
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Prints a summary of all collected metrics.
+     *
+     * @param out
+     *            the stream to print to
+     */
+    public void printSummary(PrintStream out) {
+        out.print(getSummary());
+    }
+
+    /**
+     * Gets a summary of all collected metrics.
+     *
+     * @return the summary, one line per metric
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder("Script evaluation metrics").append(System.lineSeparator());
+
+        getEvaluationsByTable().forEach((table, count) -> line(summary, "table " + table, count + " evaluations"));
+        getEvaluationsByColumn().forEach((column, count) -> line(summary, "column " + column, count + " evaluations"));
+        getEvalLatenciesByPrefix().forEach((prefix, latencies) -> line(summary, "eval " + prefix, latencies));
+        line(summary, "compile", compileLatencies);
+        line(summary, "preInvoke", preInvokeLatencies);
+        line(summary, "postInvoke", postInvokeLatencies);
+        line(summary, "cache", getCacheHits() + " hits, " + getCacheMisses() + " misses, "
+                + TimeUnit.NANOSECONDS.toMillis(compileLatencies.getTotalNanos()) + "ms compiling");
+
+        return summary.toString();
+    }
+
+    /**
+     * Removes all collected metrics.
+     */
+    public void reset() {
+        evaluationsByTable.clear();
+        evaluationsByColumn.clear();
+        evalLatenciesByPrefix.clear();
+        compileLatencies.reset();
+        preInvokeLatencies.reset();
+        postInvokeLatencies.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+    }
+
+    /**
+     * Appends a line to the summary.
+     *
+     * @param summary
+     *            the summary
+     * @param name
+     *            the name of the metric
+     * @param value
+     *            the value of the metric
+     */
+    private static void line(StringBuilder summary, String name, Object value) {
+        summary.append("  ").append(name).append(": ").append(value).append(System.lineSeparator());
+    }
+
+    /**
+     * Creates a sorted snapshot of counters.
+     *
+     * @param counters
+     *            the counters
+     *
+     * @return the snapshot
+     */
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> theValue = new TreeMap<>();
+        counters.forEach((key, counter) -> theValue.put(key, counter.sum()));
+        return theValue;
+    }
+}
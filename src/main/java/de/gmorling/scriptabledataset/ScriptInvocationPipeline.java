@@ -0,0 +1,644 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import de.gmorling.scriptabledataset.ScriptEvaluationEvent.CacheResult;
+import de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evaluates the scripts of one configuration: runs the preInvoke methods of all handlers, compiles or evaluates the
+ * script and runs the postInvoke methods of all handlers in reversed order.
+ * <p>
+ * The handler chains are built once and never modified afterwards, so the handler order is the same for every field. A
+ * pipeline may be used by several threads: unless the engine factory declares a threading capability (see
+ * {@link ScriptEnginePool}), the primary engine and the handlers bound to it are used by one thread at a time.
+ * <p>
+ * The preludes of all handlers providing one (see {@link ScriptInvocationHandler#getPrelude()}) are run into each
+ * engine once, into a shared engine only by the first data set using it. If no other handlers are registered, fields
+ * are passed around in their complete form, i.e. including the prefix, and the script is taken from the field at the
+ * offset of the prefix only when the engine needs it. So neither a cached compiled script nor a folded result costs a
+ * new string per field.
+ */
+final class ScriptInvocationPipeline {
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ScriptInvocationPipeline.class);
+
+    /** Returned for scripts without a folded result. */
+    static final Object NOT_FOLDED = new Object();
+
+    /** The maximum number of folded results kept by one pipeline. */
+    static final int MAXIMUM_FOLDED_VALUES = 10_000;
+
+    /** Stands for a folded null result, as the folded values map doesn't allow null values. */
+    private static final Object NULL = new Object();
+
+    /** The configuration. */
+    private final ScriptableDataSetConfig configuration;
+
+    /** The engine. */
+    private final ScriptEngine engine;
+
+    /** The evaluation epoch. */
+    private final Date epoch;
+
+    /** The context exposing the epoch on top of a shared engine's bindings, or null if the engine isn't shared. */
+    private final ScriptContext epochContext;
+
+    /** The handlers in preInvoke order: standard handlers first, then custom handlers. */
+    private final ScriptInvocationHandler[] handlers;
+
+    /** The handlers without prelude in preInvoke order, i.e. those rewriting each script. */
+    private final ScriptInvocationHandler[] preInvokeHandlers;
+
+    /** The offset of the script within the texts returned by {@link #preInvoke(String, ScriptEvaluationEvent)}. */
+    private final int scriptOffset;
+
+    /** The handlers in postInvoke order, i.e. reversed. */
+    private final ScriptInvocationHandler[] reversedHandlers;
+
+    /** Whether any handler depends on the engine it is bound to. */
+    private final boolean engineBoundHandlers;
+
+    /** The compiled script cache of the engine, kept with the engine if it is shared. */
+    private final CompiledScriptCache compiledScriptCache;
+
+    /** The engine pool for parallel evaluation. */
+    private final ScriptEnginePool enginePool;
+
+    /** The listener, or null. */
+    private final ScriptEvaluationListener listener;
+
+    /** The folded results by script, or null if constant folding is disabled. */
+    private final Map<String, Object> foldedValues;
+
+    /** The marker of scripts folded without being proven constant, or null. */
+    private final String constantMarker;
+
+    /**
+     * Creates a new ScriptInvocationPipeline.
+     *
+     * @param configuration
+     *            the configuration
+     * @param engine
+     *            the engine
+     * @param handlers
+     *            the handlers in preInvoke order
+     * @param epoch
+     *            the evaluation epoch, already bound in the engine unless it is shared with other data sets
+     */
+    ScriptInvocationPipeline(ScriptableDataSetConfig configuration, ScriptEngine engine,
+            List<ScriptInvocationHandler> handlers, Date epoch) {
+        this.configuration = configuration;
+        this.engine = engine;
+        this.epoch = epoch;
+        this.epochContext = configuration.isSharedEngine() ? EpochBindings.createContext(engine, epoch) : null;
+        this.handlers = handlers.toArray(new ScriptInvocationHandler[0]);
+        this.reversedHandlers = new ScriptInvocationHandler[this.handlers.length];
+        for (int i = 0; i < this.handlers.length; i++) {
+            reversedHandlers[i] = this.handlers[this.handlers.length - 1 - i];
+        }
+
+        List<ScriptInvocationHandler> rewriting = new ArrayList<>();
+        List<String> preludes = new ArrayList<>();
+        boolean theEngineBoundHandlers = false;
+        for (ScriptInvocationHandler oneHandler : handlers) {
+            theEngineBoundHandlers |= !oneHandler.isEngineIndependent();
+            String prelude = oneHandler.getPrelude();
+            if (prelude != null) {
+                preludes.add(prelude);
+            } else {
+                rewriting.add(oneHandler);
+            }
+        }
+        this.preInvokeHandlers = rewriting.toArray(new ScriptInvocationHandler[0]);
+        this.engineBoundHandlers = theEngineBoundHandlers;
+        this.scriptOffset = preInvokeHandlers.length == 0 ? configuration.getPrefix().length() : 0;
+
+        if (configuration.isSharedEngine()) {
+            SharedEngines.runPreludes(configuration.getLanguageName(), preludes);
+        } else {
+            runPreludes(engine, preludes);
+        }
+
+        this.compiledScriptCache = configuration.isSharedEngine()
+                ? SharedEngines.getCompiledScriptCache(configuration.getLanguageName(), configuration.getPrefix(),
+                        configuration.getCompiledScriptCacheSize())
+                : new CompiledScriptCache(engine, configuration.getCompiledScriptCacheSize());
+        this.enginePool = new ScriptEnginePool(engine, compiledScriptCache, configuration.getCompiledScriptCacheSize(),
+                configuration.getParallelism(), preludes, epoch);
+        this.listener = configuration.getListener();
+        this.foldedValues = configuration.isConstantFolding() ? new ConcurrentHashMap<>() : null;
+        this.constantMarker = configuration.getConstantMarker();
+    }
+
+    /**
+     * Runs the given preludes into an engine.
+     *
+     * @param theEngine
+     *            the engine
+     * @param preludes
+     *            the preludes, in handler order
+     */
+    static void runPreludes(ScriptEngine theEngine, List<String> preludes) {
+        for (String onePrelude : preludes) {
+            logger.debug("Running prelude: {}", onePrelude);
+            try {
+                theEngine.eval(onePrelude);
+            } catch (ScriptException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the script of a field with the primary engine, applying all handlers.
+     *
+     * @param tableName
+     *            the name of the table containing the field
+     * @param columnName
+     *            the name of the column containing the field
+     * @param row
+     *            the row containing the field
+     * @param field
+     *            the field, including the prefix
+     * @param context
+     *            the context to evaluate the script with, or null to use the engine's default context
+     *
+     * @return the post-processed result of the script
+     */
+    Object evaluate(String tableName, String columnName, int row, String field, ScriptContext context) {
+
+        Object theValue = getFoldedValue(field);
+        if (theValue != NOT_FOLDED) {
+            return theValue;
+        }
+
+        if (enginePool.isShared()) {
+            theValue = evaluateWithPrimaryEngine(tableName, columnName, row, field, context);
+        } else {
+            synchronized (engine) {
+                theValue = evaluateWithPrimaryEngine(tableName, columnName, row, field, context);
+            }
+        }
+
+        fold(field, theValue);
+        return theValue;
+    }
+
+    /**
+     * Evaluates the script of a field with the primary engine, applying all handlers. The caller is responsible for
+     * holding the engine's lock, if required.
+     *
+     * @param tableName
+     *            the name of the table containing the field
+     * @param columnName
+     *            the name of the column containing the field
+     * @param row
+     *            the row containing the field
+     * @param field
+     *            the field, including the prefix
+     * @param context
+     *            the context to evaluate the script with, or null to use the engine's default context
+     *
+     * @return the post-processed result of the script
+     */
+    private Object evaluateWithPrimaryEngine(String tableName, String columnName, int row, String field,
+            ScriptContext context) {
+        ScriptEvaluationEvent event = startEvent(tableName, columnName, row, field);
+        Object theValue = postInvoke(eval(engine, compiledScriptCache, preInvoke(field, event), tableName, columnName,
+                row, context, event), event);
+        finishEvent(event);
+        return theValue;
+    }
+
+    /**
+     * Gets the result of an earlier evaluation of the given field's script, if constant folding is enabled.
+     *
+     * @param field
+     *            the field, including the prefix
+     *
+     * @return the post-processed result, or {@link #NOT_FOLDED} if the script hasn't been evaluated yet or constant
+     *         folding is disabled
+     */
+    Object getFoldedValue(String field) {
+        if (foldedValues == null) {
+            return NOT_FOLDED;
+        }
+        Object theValue = foldedValues.get(field);
+        if (theValue == null) {
+            return NOT_FOLDED;
+        }
+        return theValue == NULL ? null : theValue;
+    }
+
+    /**
+     * Keeps the result of a field's script for all further fields with the same script, if the script is foldable and
+     * fewer than {@link #MAXIMUM_FOLDED_VALUES} results are kept.
+     *
+     * @param field
+     *            the field, including the prefix
+     * @param theValue
+     *            the post-processed result
+     */
+    void fold(String field, Object theValue) {
+        if (foldedValues != null && foldedValues.size() < MAXIMUM_FOLDED_VALUES && isFoldable(field)) {
+            foldedValues.putIfAbsent(field, theValue == null ? NULL : theValue);
+        }
+    }
+
+    /**
+     * Whether the result of a field's script may be reused for all fields with the same script: constant folding is
+     * enabled and the script is either proven constant (see {@link ConstantScripts}) or contains the constant marker.
+     *
+     * @param field
+     *            the field, including the prefix
+     *
+     * @return true, if the script is foldable
+     */
+    boolean isFoldable(String field) {
+        return foldedValues != null && (constantMarker != null && field.contains(constantMarker)
+                || ConstantScripts.isConstant(field, configuration.getPrefix().length()));
+    }
+
+    /**
+     * Evaluates several scripts with a single call of the primary engine, using the batch script generator of the
+     * configuration. The handlers are applied to each script individually.
+     *
+     * @param tableName
+     *            the name of the table containing the scripts
+     * @param columnNames
+     *            the names of the columns containing the scripts
+     * @param rows
+     *            the rows containing the scripts
+     * @param fields
+     *            the fields, including the prefix
+     *
+     * @return the post-processed results of the scripts, in the same order
+     */
+    Object[] evaluateBatch(String tableName, String[] columnNames, int[] rows, String[] fields) {
+        if (enginePool.isShared()) {
+            return evaluateBatchWithPrimaryEngine(tableName, columnNames, rows, fields);
+        }
+        synchronized (engine) {
+            return evaluateBatchWithPrimaryEngine(tableName, columnNames, rows, fields);
+        }
+    }
+
+    /**
+     * Evaluates several scripts with a single call of the primary engine. The caller is responsible for holding the
+     * engine's lock, if required. If the combined script fails, the scripts are evaluated one by one, so that the error
+     * names the failing field.
+     *
+     * @param tableName
+     *            the name of the table containing the scripts
+     * @param columnNames
+     *            the names of the columns containing the scripts
+     * @param rows
+     *            the rows containing the scripts
+     * @param fields
+     *            the fields, including the prefix
+     *
+     * @return the post-processed results of the scripts, in the same order
+     */
+    private Object[] evaluateBatchWithPrimaryEngine(String tableName, String[] columnNames, int[] rows,
+            String[] fields) {
+
+        ScriptEvaluationEvent[] events = new ScriptEvaluationEvent[fields.length];
+        List<String> preInvoked = new ArrayList<>(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            events[i] = startEvent(tableName, columnNames[i], rows[i], fields[i]);
+            preInvoked.add(preInvoke(fields[i], events[i]).substring(scriptOffset));
+        }
+
+        String batchScript = configuration.getBatchScriptGenerator().generate(preInvoked);
+        logger.debug("Executing batch of {} scripts: {}", fields.length, batchScript);
+
+        Object batchValue;
+        long start = System.nanoTime();
+        try {
+            // batches hardly ever repeat, so they aren't compiled
+            ScriptExecutionEvent execution = new ScriptExecutionEvent();
+            execution.begin();
+            batchValue = epochContext != null ? engine.eval(batchScript, epochContext) : engine.eval(batchScript);
+            execution.finish(getPrefix(), tableName, columnNames[0], rows[0], batchScript.length());
+        } catch (ScriptException e) {
+            logger.debug("Batch script with prefix {} failed, evaluating its scripts one by one.", getPrefix(), e);
+            return evaluateOneByOne(tableName, columnNames, rows, fields);
+        }
+        long evalNanos = (System.nanoTime() - start) / fields.length;
+
+        List<?> values;
+        if (batchValue instanceof List<?> list) {
+            values = list;
+        } else if (batchValue instanceof Object[] array) {
+            values = Arrays.asList(array);
+        } else {
+            values = null;
+        }
+        if (values == null || values.size() != fields.length) {
+            throw new RuntimeException("Batch script with prefix " + getPrefix() + " returned " + batchValue
+                    + " instead of " + fields.length + " values.");
+        }
+
+        Object[] theValues = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            if (events[i] != null) {
+                events[i].setEvalNanos(evalNanos);
+            }
+            theValues[i] = postInvoke(values.get(i), events[i]);
+            finishEvent(events[i]);
+        }
+        return theValues;
+    }
+
+    /**
+     * Evaluates several scripts one by one with the primary engine, as done if their batch script fails. The caller is
+     * responsible for holding the engine's lock, if required.
+     *
+     * @param tableName
+     *            the name of the table containing the scripts
+     * @param columnNames
+     *            the names of the columns containing the scripts
+     * @param rows
+     *            the rows containing the scripts
+     * @param fields
+     *            the fields, including the prefix
+     *
+     * @return the post-processed results of the scripts, in the same order
+     *
+     * @throws RuntimeException
+     *             naming the table, column and row of the first failing script
+     */
+    private Object[] evaluateOneByOne(String tableName, String[] columnNames, int[] rows, String[] fields) {
+        Object[] theValues = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                theValues[i] = evaluateWithPrimaryEngine(tableName, columnNames[i], rows[i], fields[i], null);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Script \"" + fields[i] + "\" in table " + tableName + ", column "
+                        + columnNames[i] + ", row " + rows[i] + " failed.", e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        return theValues;
+    }
+
+    /**
+     * Creates the event describing the evaluation of a field's script, if a listener is registered.
+     *
+     * @param tableName
+     *            the name of the table containing the field
+     * @param columnName
+     *            the name of the column containing the field
+     * @param row
+     *            the row containing the field
+     * @param field
+     *            the field, including the prefix
+     *
+     * @return the event, or null if no listener is registered
+     */
+    ScriptEvaluationEvent startEvent(String tableName, String columnName, int row, String field) {
+        if (listener == null) {
+            return null;
+        }
+        return new ScriptEvaluationEvent(tableName, columnName, row, configuration,
+                field.length() - getPrefix().length());
+    }
+
+    /**
+     * Passes an event to the listener.
+     *
+     * @param event
+     *            the event, may be null if no listener is registered
+     */
+    void finishEvent(ScriptEvaluationEvent event) {
+        if (event != null) {
+            listener.scriptEvaluated(event);
+        }
+    }
+
+    /**
+     * Applies the preInvoke methods of all handlers without prelude. If there are none, the field is returned as is.
+     *
+     * @param field
+     *            the field, including the prefix
+     * @param event
+     *            the event to record the duration in, may be null
+     *
+     * @return the text to be passed to {@link #eval(ScriptEngine, CompiledScriptCache, String, String, String, int,
+     *         ScriptContext, ScriptEvaluationEvent) eval()}, containing the script to be executed at the script offset
+     */
+    String preInvoke(String field, ScriptEvaluationEvent event) {
+        if (preInvokeHandlers.length == 0) {
+            return field;
+        }
+
+        long start = event != null ? System.nanoTime() : 0;
+        String script = field.substring(getPrefix().length());
+        for (ScriptInvocationHandler handler : preInvokeHandlers) {
+            script = handler.preInvoke(script);
+        }
+        if (event != null) {
+            event.setPreInvokeNanos(System.nanoTime() - start);
+        }
+        return script;
+    }
+
+    /**
+     * Executes a script, using its compiled form if the engine supports compilation. Compiled scripts are cached by the
+     * given text, so the script is only cut out of it when it needs to be compiled or interpreted. Compilation and
+     * execution are recorded as Java Flight Recorder events, if enabled.
+     *
+     * @param theEngine
+     *            the engine
+     * @param cache
+     *            the compiled script cache of that engine
+     * @param text
+     *            the text containing the script, as returned by {@link #preInvoke(String, ScriptEvaluationEvent)}
+     * @param tableName
+     *            the name of the table containing the script
+     * @param columnName
+     *            the name of the column containing the script
+     * @param row
+     *            the row containing the script
+     * @param context
+     *            the context to evaluate the script with, or null to use the engine's default context (or the epoch
+     *            context of a shared engine)
+     * @param event
+     *            the event to record the durations in, may be null
+     *
+     * @return the raw result of the script
+     */
+    Object eval(ScriptEngine theEngine, CompiledScriptCache cache, String text, String tableName,
+            String columnName, int row, ScriptContext context, ScriptEvaluationEvent event) {
+
+        logger.debug("Executing script: {}", text);
+
+        int scriptLength = text.length() - scriptOffset;
+        ScriptContext theContext = context == null && theEngine == engine ? epochContext : context;
+
+        try {
+            long start = event != null ? System.nanoTime() : 0;
+
+            CompiledScript compiled = cache.getIfPresent(text);
+            if (compiled == null && cache.isEnabled()) {
+                ScriptCompilationEvent compilation = new ScriptCompilationEvent();
+                compilation.begin();
+                compiled = cache.get(text, scriptOffset);
+                compilation.finish(getPrefix(), tableName, columnName, row, scriptLength);
+
+                if (event != null) {
+                    long compiledAt = System.nanoTime();
+                    event.setCacheResult(CacheResult.MISS);
+                    event.setCompileNanos(compiledAt - start);
+                    start = compiledAt;
+                }
+            } else if (compiled != null && event != null) {
+                event.setCacheResult(CacheResult.HIT);
+            }
+
+            ScriptExecutionEvent execution = new ScriptExecutionEvent();
+            execution.begin();
+            Object theValue;
+            if (compiled != null) {
+                theValue = theContext != null ? compiled.eval(theContext) : compiled.eval();
+            } else {
+                String script = text.substring(scriptOffset);
+                theValue = theContext != null ? theEngine.eval(script, theContext) : theEngine.eval(script);
+            }
+            execution.finish(getPrefix(), tableName, columnName, row, scriptLength);
+
+            if (event != null) {
+                event.setEvalNanos(System.nanoTime() - start);
+            }
+
+            return theValue;
+        } catch (ScriptException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (context != null && isRowBindings()) {
+                RowBindings.unbind();
+            }
+        }
+    }
+
+    /**
+     * Applies the postInvoke methods of all handlers in reversed order.
+     *
+     * @param theValue
+     *            the raw result of the script
+     * @param event
+     *            the event to record the duration in, may be null
+     *
+     * @return the post-processed result
+     */
+    Object postInvoke(Object theValue, ScriptEvaluationEvent event) {
+        long start = event != null ? System.nanoTime() : 0;
+        for (ScriptInvocationHandler handler : reversedHandlers) {
+            theValue = handler.postInvoke(theValue);
+        }
+        if (event != null) {
+            event.setPostInvokeNanos(System.nanoTime() - start);
+        }
+        return theValue;
+    }
+
+    /**
+     * Gets the configuration.
+     *
+     * @return the configuration
+     */
+    ScriptableDataSetConfig getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Gets the prefix.
+     *
+     * @return the prefix
+     */
+    String getPrefix() {
+        return configuration.getPrefix();
+    }
+
+    /**
+     * Gets the engine.
+     *
+     * @return the engine
+     */
+    ScriptEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the evaluation epoch of the data set.
+     *
+     * @return the evaluation epoch
+     */
+    Date getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Whether results of this pipeline are folded.
+     *
+     * @return true, if constant folding is enabled
+     */
+    boolean isConstantFolding() {
+        return foldedValues != null;
+    }
+
+    /**
+     * Whether scripts of this pipeline are evaluated with {@link RowBindings}.
+     *
+     * @return true, if row bindings are enabled
+     */
+    boolean isRowBindings() {
+        return configuration.isRowBindings();
+    }
+
+    /**
+     * Whether any handler registered for this pipeline depends on the engine it is bound to.
+     *
+     * @return true, if there are handlers which aren't engine independent
+     * @see ScriptInvocationHandler#isEngineIndependent()
+     */
+    boolean hasEngineBoundHandlers() {
+        return engineBoundHandlers;
+    }
+
+    /**
+     * Gets the compiled script cache.
+     *
+     * @return the compiled script cache
+     */
+    CompiledScriptCache getCompiledScriptCache() {
+        return compiledScriptCache;
+    }
+
+    /**
+     * Gets the engine pool.
+     *
+     * @return the engine pool
+     */
+    ScriptEnginePool getEnginePool() {
+        return enginePool;
+    }
+}
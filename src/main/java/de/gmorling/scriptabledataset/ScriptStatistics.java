@@ -0,0 +1,133 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import lombok.ToString;
+
+/**
+ * Describes which fields of a {@link ScriptableTable} contain scripts. It is determined by a single pass over the
+ * wrapped table upon first access of the scriptable table.
+ */
+@ToString(exclude = "scriptedColumnIndexes")
+public class ScriptStatistics {
+
+    /** The table name. */
+    private final String tableName;
+
+    /** The row count. */
+    private final int rowCount;
+
+    /** The column count. */
+    private final int columnCount;
+
+    /** The scripted field count. */
+    private final int scriptedFieldCount;
+
+    /** The scripted field counts by language. */
+    private final Map<String, Integer> scriptedFieldsByLanguage;
+
+    /** The names of the columns containing scripts. */
+    private final List<String> scriptedColumns;
+
+    /** The indexes of the columns containing scripts. */
+    private final BitSet scriptedColumnIndexes;
+
+    /**
+     * Creates a new ScriptStatistics.
+     *
+     * @param tableName
+     *            the table name
+     * @param rowCount
+     *            the row count
+     * @param columnCount
+     *            the column count
+     * @param scriptedFieldsByLanguage
+     *            the scripted field counts by language
+     * @param scriptedColumns
+     *            the names of the columns containing scripts
+     * @param scriptedColumnIndexes
+     *            the indexes of the columns containing scripts
+     */
+    ScriptStatistics(String tableName, int rowCount, int columnCount, Map<String, Integer> scriptedFieldsByLanguage,
+            List<String> scriptedColumns, BitSet scriptedColumnIndexes) {
+        this.tableName = tableName;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.scriptedFieldsByLanguage = Map.copyOf(scriptedFieldsByLanguage);
+        this.scriptedFieldCount = scriptedFieldsByLanguage.values().stream().mapToInt(Integer::intValue).sum();
+        this.scriptedColumns = List.copyOf(scriptedColumns);
+        this.scriptedColumnIndexes = scriptedColumnIndexes;
+    }
+
+    /**
+     * Gets the table name.
+     *
+     * @return the table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Gets the row count.
+     *
+     * @return the row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the column count.
+     *
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Gets the number of fields containing a script.
+     *
+     * @return the scripted field count
+     */
+    public int getScriptedFieldCount() {
+        return scriptedFieldCount;
+    }
+
+    /**
+     * Gets the number of fields containing a script, by the name of their scripting language.
+     *
+     * @return the scripted field counts by language
+     */
+    public Map<String, Integer> getScriptedFieldsByLanguage() {
+        return scriptedFieldsByLanguage;
+    }
+
+    /**
+     * Gets the names of the columns containing at least one script.
+     *
+     * @return the scripted columns
+     */
+    public List<String> getScriptedColumns() {
+        return scriptedColumns;
+    }
+
+    /**
+     * Whether the column with the given index contains at least one script.
+     *
+     * @param columnIndex
+     *            the column index
+     *
+     * @return true, if the column contains a script
+     */
+    boolean isScriptedColumn(int columnIndex) {
+        return scriptedColumnIndexes.get(columnIndex);
+    }
+}
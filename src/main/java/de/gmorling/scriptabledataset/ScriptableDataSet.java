@@ -4,7 +4,7 @@
  */
 package de.gmorling.scriptabledataset;
 
-import java.util.Arrays;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 
@@ -48,14 +48,23 @@ import org.dbunit.dataset.ITableIterator;
  * that can be used to pre-process scripts (e.g. to add common imports) and post-process scripts (e.g. to convert
  * results into data types understood by DBUnit).</li>
  * </ul>
+ * <p>
+ * A ScriptableDataSet may be shared by threads, e.g. as fixture of tests running in parallel, as long as the wrapped
+ * data set can be read concurrently (as e.g. flat XML data sets can). All tables share the engines and handlers of the
+ * data set: engines not declaring themselves thread-safe, and the handlers bound to them, are used by one thread at a
+ * time, and standard handlers as well as handlers given by a provider are instantiated for each data set. Handler
+ * instances given to a configuration are used as given and must be thread-safe if it is used by several threads.
  */
 public class ScriptableDataSet extends AbstractDataSet {
 
     /** The wrapped. */
-    private IDataSet wrapped;
+    private final IDataSet wrapped;
 
     /** The configurations. */
-    private List<ScriptableDataSetConfig> configurations;
+    private final List<ScriptableDataSetConfig> configurations;
+
+    /** The registry, shared by all iterators and tables of this data set. */
+    private final ScriptEngineRegistry registry;
 
     /**
      * Creates a new ScriptableDataSet.
@@ -66,20 +75,81 @@ public class ScriptableDataSet extends AbstractDataSet {
      *            At least one scriptable data set configuration.
      */
     public ScriptableDataSet(IDataSet wrapped, ScriptableDataSetConfig... configurations) {
+        this(wrapped, Instant.now(), configurations);
+    }
+
+    /**
+     * Creates a new ScriptableDataSet with a given evaluation epoch, exposed to all scripts by the binding
+     * {@value ScriptEngineRegistry#EPOCH}. Using a fixed epoch makes data sets with relative dates reproducible.
+     *
+     * @param wrapped
+     *            Another data set to be wrapped by this scriptable data set. Must not be null.
+     * @param epoch
+     *            The evaluation epoch. Must not be null.
+     * @param configurations
+     *            At least one scriptable data set configuration.
+     */
+    public ScriptableDataSet(IDataSet wrapped, Instant epoch, ScriptableDataSetConfig... configurations) {
+        this(wrapped, epoch, ScriptableDataSetOptions.defaults(), configurations);
+    }
+
+    /**
+     * Creates a new ScriptableDataSet with a given evaluation epoch and options applying to the data set as a whole,
+     * such as look-ahead, row generation, literal replacements and the result cache.
+     *
+     * @param wrapped
+     *            Another data set to be wrapped by this scriptable data set. Must not be null.
+     * @param epoch
+     *            The evaluation epoch. Must not be null.
+     * @param options
+     *            The options of the data set. Must not be null.
+     * @param configurations
+     *            At least one scriptable data set configuration.
+     */
+    public ScriptableDataSet(IDataSet wrapped, Instant epoch, ScriptableDataSetOptions options,
+            ScriptableDataSetConfig... configurations) {
 
         Objects.requireNonNull(wrapped);
+        Objects.requireNonNull(epoch);
+        Objects.requireNonNull(options);
 
         Objects.requireNonNull(configurations);
         Validate.noNullElements(configurations);
         Validate.notEmpty(configurations);
 
         this.wrapped = wrapped;
-        this.configurations = Arrays.asList(configurations);
+        this.configurations = List.of(configurations);
+        // engines are resolved lazily (or pre-warmed), so creating the registry right away is cheap
+        this.registry = new ScriptEngineRegistry(this.configurations, epoch, options);
+    }
+
+    /**
+     * Builds the table map of the data set once. Synchronized, as the base class publishes the map before filling it.
+     *
+     * @throws DataSetException
+     *             if a table of the wrapped data set can't be read
+     */
+    @Override
+    protected synchronized void initialize() throws DataSetException {
+        super.initialize();
     }
 
     @Override
     protected ITableIterator createIterator(boolean reversed) throws DataSetException {
-        return new ScriptableIterator(reversed ? wrapped.reverseIterator() : wrapped.iterator(), configurations);
+        ITableIterator tables = reversed ? wrapped.reverseIterator() : wrapped.iterator();
+        if (registry.getOptions().getLookAhead() > 0 && registry.isEager()) {
+            return new LookAheadIterator(tables, registry);
+        }
+        return new ScriptableIterator(tables, registry);
+    }
+
+    /**
+     * Gets the registry.
+     *
+     * @return the registry
+     */
+    ScriptEngineRegistry getRegistry() {
+        return registry;
     }
 
 }
@@ -9,15 +9,36 @@ import de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import lombok.ToString;
 
+import org.apache.commons.lang3.Validate;
+
 /**
  * Configures the usage of one scripting language with a prefix and a list of invocation handlers.
+ * <p>
+ * Further options can be set using a {@link Builder}:
+ *
+ * <pre>
+ * ScriptableDataSetConfig config = ScriptableDataSetConfig.builder(&quot;groovy&quot;, &quot;groovy:&quot;)
+ *         .compiledScriptCacheSize(1000).build();
+ * </pre>
+ *
+ * Configurations are immutable and may be shared by data sets used from several threads. Handlers given by a provider
+ * (see {@link Builder#handlerProvider(Supplier)}) are instantiated for each data set like the standard handlers, so
+ * they may keep state bound to their engine. Handler instances given to a configuration are shared by all its data sets
+ * instead, so they must be thread-safe in that case.
  */
 @ToString
 public class ScriptableDataSetConfig {
 
+    /** The default maximum number of compiled scripts cached per configuration. */
+    public static final int DEFAULT_COMPILED_SCRIPT_CACHE_SIZE = 512;
+
+    /** The default maximum number of fields evaluated by one script with {@link EvaluationMode#BATCH}. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
     /** The prefix. */
     private final String prefix;
 
@@ -25,7 +46,46 @@ public class ScriptableDataSetConfig {
     private final String languageName;
 
     /** The handlers. */
-    private final List<ScriptInvocationHandler> handlers = new ArrayList<>();
+    private final List<ScriptInvocationHandler> handlers;
+
+    /** The providers of all custom handlers, in handler order. */
+    private final List<Supplier<? extends ScriptInvocationHandler>> handlerProviders;
+
+    /** The compiled script cache size. */
+    private final int compiledScriptCacheSize;
+
+    /** The evaluation mode. */
+    private final EvaluationMode evaluationMode;
+
+    /** The parallelism. */
+    private final int parallelism;
+
+    /** The listener. */
+    private final ScriptEvaluationListener listener;
+
+    /** The batch script generator. */
+    private final BatchScriptGenerator batchScriptGenerator;
+
+    /** The batch size. */
+    private final int batchSize;
+
+    /** Whether scripts are evaluated with row bindings. */
+    private final boolean rowBindings;
+
+    /** Whether results are reused for all fields with the same script. */
+    private final boolean constantFolding;
+
+    /** The marker of scripts folded without being proven constant, or null. */
+    private final String constantMarker;
+
+    /** Whether results are cached across runs. */
+    private final boolean resultCaching;
+
+    /** Whether the engine is started ahead of time. */
+    private final boolean prewarm;
+
+    /** Whether the engine is kept for the lifetime of the JVM. */
+    private final boolean sharedEngine;
 
     /**
      * Creates a new ScriptableDataSetConfig.
@@ -54,16 +114,56 @@ public class ScriptableDataSetConfig {
      *            An optional list with handlers to be applied for fields with the given prefix.
      */
     public ScriptableDataSetConfig(String languageName, String prefix, List<ScriptInvocationHandler> handlers) {
+        this(builder(languageName, prefix).handlers(handlers));
+    }
 
-        Objects.requireNonNull(languageName);
-        Objects.requireNonNull(prefix);
+    /**
+     * Creates a new ScriptableDataSetConfig from the given builder.
+     *
+     * @param builder
+     *            the builder
+     */
+    private ScriptableDataSetConfig(Builder builder) {
+        this.prefix = builder.prefix;
+        this.languageName = builder.languageName;
+        this.handlers = List.copyOf(builder.handlers);
+        this.handlerProviders = List.copyOf(builder.handlerProviders);
+        this.compiledScriptCacheSize = builder.compiledScriptCacheSize;
+        this.evaluationMode = builder.evaluationMode;
+        this.parallelism = builder.parallelism;
+        this.listener = builder.listener;
+        this.batchScriptGenerator = builder.batchScriptGenerator != null ? builder.batchScriptGenerator
+                : BatchScriptGenerator.forLanguage(builder.languageName);
+        this.batchSize = builder.batchSize;
+        this.rowBindings = builder.rowBindings;
+        this.constantFolding = builder.constantFolding;
+        this.constantMarker = builder.constantMarker;
+        this.resultCaching = builder.resultCaching;
+        this.prewarm = builder.prewarm;
+        this.sharedEngine = builder.sharedEngine;
 
-        this.prefix = prefix;
-        this.languageName = languageName;
+        Validate.isTrue(evaluationMode != EvaluationMode.BATCH || batchScriptGenerator != null,
+                "No batch script generator given for language %s", languageName);
+        Validate.isTrue(!(rowBindings && constantFolding), "Row bindings can't be combined with constant folding");
+        Validate.isTrue(constantMarker == null || constantFolding, "A constant marker requires constant folding");
+        Validate.isTrue(!(rowBindings && evaluationMode == EvaluationMode.BATCH),
+                "Row bindings can't be combined with batch evaluation");
+    }
 
-        if (handlers != null) {
-            this.handlers.addAll(handlers);
-        }
+    /**
+     * Creates a builder for a configuration of the given language and prefix.
+     *
+     * @param languageName
+     *            The name of the language as expected by the JSR 223 scripting engine manager, e.g. "jruby". May not be
+     *            null.
+     * @param prefix
+     *            A prefix, which shall precede fields in a ScriptableDataSet in that language, e.g. "jruby:". May not
+     *            be null.
+     *
+     * @return the builder
+     */
+    public static Builder builder(String languageName, String prefix) {
+        return new Builder(languageName, prefix);
     }
 
     /**
@@ -85,12 +185,506 @@ public class ScriptableDataSetConfig {
     }
 
     /**
-     * Gets the handlers.
+     * Gets the handler instances given to this configuration. Handlers given by a provider aren't included.
      *
-     * @return the handlers
+     * @return the handlers, as unmodifiable list
      */
     public List<ScriptInvocationHandler> getHandlers() {
         return handlers;
     }
 
+    /**
+     * Gets the providers of all custom handlers, including those returning a handler instance given to this
+     * configuration.
+     *
+     * @return the handler providers in handler order, as unmodifiable list
+     */
+    public List<Supplier<? extends ScriptInvocationHandler>> getHandlerProviders() {
+        return handlerProviders;
+    }
+
+    /**
+     * Gets the custom handlers for a new pipeline: new instances from the providers, and the handler instances given to
+     * this configuration.
+     *
+     * @return the custom handlers in handler order
+     */
+    List<ScriptInvocationHandler> createHandlers() {
+        List<ScriptInvocationHandler> theValue = new ArrayList<>(handlerProviders.size());
+        for (Supplier<? extends ScriptInvocationHandler> oneProvider : handlerProviders) {
+            theValue.add(Objects.requireNonNull(oneProvider.get(), "Handler provider returned null"));
+        }
+        return theValue;
+    }
+
+    /**
+     * Gets the maximum number of compiled scripts cached for this configuration. Scripts are only compiled if the
+     * engine implements {@link javax.script.Compilable}; 0 disables the cache.
+     *
+     * @return the compiled script cache size
+     */
+    public int getCompiledScriptCacheSize() {
+        return compiledScriptCacheSize;
+    }
+
+    /**
+     * Gets the evaluation mode, which determines whether script results are stored in the table.
+     *
+     * @return the evaluation mode
+     */
+    public EvaluationMode getEvaluationMode() {
+        return evaluationMode;
+    }
+
+    /**
+     * Gets the number of threads evaluating the scripts of a table with {@link EvaluationMode#PARALLEL}. This is also
+     * the maximum number of engines created for languages whose engines can't be shared between threads.
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Gets the listener notified about every evaluated script.
+     *
+     * @return the listener, or null if none is registered
+     */
+    public ScriptEvaluationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Gets the generator combining the scripts of a table with {@link EvaluationMode#BATCH}.
+     *
+     * @return the batch script generator, or null if none was given and there is no built-in one for the language
+     */
+    public BatchScriptGenerator getBatchScriptGenerator() {
+        return batchScriptGenerator;
+    }
+
+    /**
+     * Gets the maximum number of fields evaluated by one script with {@link EvaluationMode#BATCH}.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Whether scripts are evaluated with bindings exposing the row index (<code>row</code>), the table name
+     * (<code>table</code>) and the values of the row known without evaluating another script, by column name.
+     *
+     * @return true, if row bindings are enabled
+     */
+    public boolean isRowBindings() {
+        return rowBindings;
+    }
+
+    /**
+     * Whether each distinct constant script of this configuration is evaluated only once per data set and its result is
+     * reused for all fields with the same script. Scripts are constant if they are proven so by a conservative analysis
+     * (literals, operators and the evaluation epoch only) or contain the {@link #getConstantMarker() constant marker}.
+     *
+     * @return true, if constant folding is enabled
+     */
+    public boolean isConstantFolding() {
+        return constantFolding;
+    }
+
+    /**
+     * Gets the marker of scripts which are folded without being proven constant, e.g. a comment such as
+     * <code>/*const*&#47;</code>.
+     *
+     * @return the constant marker, or null
+     */
+    public String getConstantMarker() {
+        return constantMarker;
+    }
+
+    /**
+     * Whether the results of this configuration's scripts are cached across runs in the directory given by
+     * {@link ScriptableDataSetOptions#getResultCacheDirectory()}.
+     *
+     * @return true, if results are cached
+     */
+    public boolean isResultCaching() {
+        return resultCaching;
+    }
+
+    /**
+     * Whether the engine of this configuration is started on a background thread as soon as the data set is created,
+     * instead of upon the first field with its prefix.
+     *
+     * @return true, if the engine is pre-warmed
+     */
+    public boolean isPrewarm() {
+        return prewarm;
+    }
+
+    /**
+     * Whether the engine of this configuration is kept for the lifetime of the JVM and shared by all data sets using
+     * the language with a shared engine.
+     *
+     * @return true, if the engine is shared
+     */
+    public boolean isSharedEngine() {
+        return sharedEngine;
+    }
+
+    /**
+     * Starts the shared engine of this configuration ahead of time and runs the preludes of its handlers (see
+     * {@link ScriptInvocationHandler#getPrelude()}) once, so that e.g. libraries required by the handlers are loaded
+     * before the first data set is read. The handlers themselves are neither bound to the engine nor invoked. Typically
+     * called once per test JVM, e.g. from a static initializer or a JUnit extension.
+     *
+     * @return this configuration
+     *
+     * @throws IllegalStateException
+     *             if this configuration doesn't use a shared engine
+     */
+    public ScriptableDataSetConfig warmUp() {
+
+        Validate.validState(sharedEngine, "Only configurations with a shared engine can be warmed up: %s", prefix);
+
+        List<String> preludes = new ArrayList<>();
+        for (ScriptInvocationHandler oneHandler : ScriptEngineRegistry.getAllHandlers(this)) {
+            if (oneHandler.getPrelude() != null) {
+                preludes.add(oneHandler.getPrelude());
+            }
+        }
+
+        SharedEngines.runPreludes(languageName, preludes);
+
+        return this;
+    }
+
+    /**
+     * Builder for {@link ScriptableDataSetConfig}.
+     */
+    public static final class Builder {
+
+        /** The prefix. */
+        private final String prefix;
+
+        /** The language name. */
+        private final String languageName;
+
+        /** The handlers. */
+        private final List<ScriptInvocationHandler> handlers = new ArrayList<>();
+
+        /** The providers of all custom handlers. */
+        private final List<Supplier<? extends ScriptInvocationHandler>> handlerProviders = new ArrayList<>();
+
+        /** The compiled script cache size. */
+        private int compiledScriptCacheSize = DEFAULT_COMPILED_SCRIPT_CACHE_SIZE;
+
+        /** The evaluation mode. */
+        private EvaluationMode evaluationMode = EvaluationMode.ON_ACCESS;
+
+        /** The parallelism. */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /** The listener. */
+        private ScriptEvaluationListener listener;
+
+        /** The batch script generator. */
+        private BatchScriptGenerator batchScriptGenerator;
+
+        /** The batch size. */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        /** Whether scripts are evaluated with row bindings. */
+        private boolean rowBindings;
+
+        /** Whether results are reused for all fields with the same script. */
+        private boolean constantFolding;
+
+        /** The marker of scripts folded without being proven constant. */
+        private String constantMarker;
+
+        /** Whether results are cached across runs. */
+        private boolean resultCaching;
+
+        /** Whether the engine is started ahead of time. */
+        private boolean prewarm;
+
+        /** Whether the engine is kept for the lifetime of the JVM. */
+        private boolean sharedEngine;
+
+        /**
+         * Instantiates a new builder.
+         *
+         * @param languageName
+         *            the language name
+         * @param prefix
+         *            the prefix
+         */
+        private Builder(String languageName, String prefix) {
+
+            Objects.requireNonNull(languageName);
+            Objects.requireNonNull(prefix);
+
+            this.languageName = languageName;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Adds handlers to be applied for fields with the configured prefix. The instances are shared by all data sets
+         * using the configuration.
+         *
+         * @param handlers
+         *            An optional list with handlers.
+         *
+         * @return this builder
+         */
+        public Builder handlers(List<ScriptInvocationHandler> handlers) {
+            if (handlers != null) {
+                handlers.forEach(this::handler);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a handler to be applied for fields with the configured prefix. The instance is shared by all data sets
+         * using the configuration; use {@link #handlerProvider(Supplier)} for handlers keeping state bound to an
+         * engine.
+         *
+         * @param handler
+         *            The handler. May not be null.
+         *
+         * @return this builder
+         */
+        public Builder handler(ScriptInvocationHandler handler) {
+            Objects.requireNonNull(handler);
+            this.handlers.add(handler);
+            this.handlerProviders.add(() -> handler);
+            return this;
+        }
+
+        /**
+         * Adds a handler to be applied for fields with the configured prefix, which is instantiated for each data set
+         * like the standard handlers, e.g. <code>handlerProvider(JRubyImportAddingInvocationHandler::new)</code>.
+         *
+         * @param handlerProvider
+         *            The provider, returning a new handler instance upon each call. May not be null.
+         *
+         * @return this builder
+         */
+        public Builder handlerProvider(Supplier<? extends ScriptInvocationHandler> handlerProvider) {
+            Objects.requireNonNull(handlerProvider);
+            this.handlerProviders.add(handlerProvider);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of compiled scripts to be cached. The least recently used script is evicted once the
+         * limit is reached.
+         *
+         * @param compiledScriptCacheSize
+         *            The cache size. 0 disables caching, so that every script is evaluated from its source.
+         *
+         * @return this builder
+         */
+        public Builder compiledScriptCacheSize(int compiledScriptCacheSize) {
+            Validate.isTrue(compiledScriptCacheSize >= 0, "Cache size must not be negative: %s",
+                    compiledScriptCacheSize);
+            this.compiledScriptCacheSize = compiledScriptCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets the evaluation mode. With {@link EvaluationMode#LAZY} or {@link EvaluationMode#EAGER} each field is
+         * evaluated only once per table, so that repeated reads (e.g. by DBUnit assertions) return the same value.
+         *
+         * @param evaluationMode
+         *            The evaluation mode. May not be null.
+         *
+         * @return this builder
+         */
+        public Builder evaluationMode(EvaluationMode evaluationMode) {
+            Objects.requireNonNull(evaluationMode);
+            this.evaluationMode = evaluationMode;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads evaluating the scripts of a table with {@link EvaluationMode#PARALLEL}. Defaults
+         * to the number of available processors.
+         *
+         * @param parallelism
+         *            The parallelism. Must be positive.
+         *
+         * @return this builder
+         */
+        public Builder parallelism(int parallelism) {
+            Validate.isTrue(parallelism > 0, "Parallelism must be positive: %s", parallelism);
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets a listener to be notified about every evaluated script, e.g. a {@link ScriptEvaluationMetrics}.
+         *
+         * @param listener
+         *            The listener. May be null, which disables instrumentation.
+         *
+         * @return this builder
+         */
+        public Builder listener(ScriptEvaluationListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the generator combining the scripts of a table with {@link EvaluationMode#BATCH}. Built-in generators
+         * exist for Groovy and JRuby, which are used if none is given.
+         *
+         * @param batchScriptGenerator
+         *            The batch script generator. May be null to use the built-in generator of the language.
+         *
+         * @return this builder
+         */
+        public Builder batchScriptGenerator(BatchScriptGenerator batchScriptGenerator) {
+            this.batchScriptGenerator = batchScriptGenerator;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of fields evaluated by one script with {@link EvaluationMode#BATCH}. Larger batches
+         * need fewer engine calls, but some engines limit the size of a single script.
+         *
+         * @param batchSize
+         *            The batch size. Must be positive.
+         *
+         * @return this builder
+         */
+        public Builder batchSize(int batchSize) {
+            Validate.isTrue(batchSize > 0, "Batch size must be positive: %s", batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Enables bindings exposing the row index (<code>row</code>), the table name (<code>table</code>) and the
+         * values of the same row by column name, so that a script can refer to other columns instead of repeating their
+         * expressions. Values of scripted columns are only visible once stored, i.e. with a materialized
+         * {@link EvaluationMode}; {@link EvaluationMode#EAGER} evaluates the columns of a table from left to right.
+         * Not supported by {@link EvaluationMode#BATCH}.
+         *
+         * @param rowBindings
+         *            Whether row bindings are enabled. Disabled by default.
+         *
+         * @return this builder
+         */
+        public Builder rowBindings(boolean rowBindings) {
+            this.rowBindings = rowBindings;
+            return this;
+        }
+
+        /**
+         * Enables constant folding: each distinct constant script is evaluated only once per data set and its result is
+         * reused for all fields with the same script. A script is constant if it consists of nothing but literals,
+         * operators and the binding {@value ScriptEngineRegistry#EPOCH} (e.g. <code>groovy:epoch - 14</code>), or if it
+         * contains the marker given to {@link #constantMarker(String)}. All other scripts are evaluated for each field.
+         * Results are shared, so they must not be modified. At most
+         * {@value ScriptInvocationPipeline#MAXIMUM_FOLDED_VALUES} results are kept per configuration and data set.
+         *
+         * @param constantFolding
+         *            Whether constant folding is enabled. Disabled by default. Can't be combined with row bindings.
+         *
+         * @return this builder
+         */
+        public Builder constantFolding(boolean constantFolding) {
+            this.constantFolding = constantFolding;
+            return this;
+        }
+
+        /**
+         * Sets a marker declaring scripts constant which the analysis of {@link #constantFolding(boolean)} can't prove
+         * constant, typically a comment such as <code>groovy:'Webster Street'.reverse() /*const*&#47;</code>. Only mark
+         * scripts which are deterministic apart from the evaluation epoch, i.e. which don't use the clock, random
+         * numbers or other mutable state.
+         *
+         * @param constantMarker
+         *            The constant marker. Not set by default. Requires constant folding.
+         *
+         * @return this builder
+         */
+        public Builder constantMarker(String constantMarker) {
+            Validate.notEmpty(constantMarker, "Constant marker must not be empty");
+            this.constantMarker = constantMarker;
+            return this;
+        }
+
+        /**
+         * Caches the results of this configuration's scripts across runs, if the data set is given a directory by
+         * {@link ScriptableDataSetOptions.Builder#resultCacheDirectory(java.nio.file.Path)}.
+         * <p>
+         * Enabling the cache declares that the scripts of this configuration are deterministic apart from the
+         * <code>epoch</code> binding: scripts using the clock or random numbers must use a configuration (i.e. prefix)
+         * of their own without caching.
+         *
+         * @param resultCaching
+         *            Whether results are cached. Disabled by default.
+         *
+         * @return this builder
+         */
+        public Builder resultCaching(boolean resultCaching) {
+            this.resultCaching = resultCaching;
+            return this;
+        }
+
+        /**
+         * Starts the engine of this configuration (and initializes its handlers) on a background thread as soon as the
+         * data set resolves its engines, so that slow engines like JRuby start while DBUnit is still reading meta data.
+         * By default an engine is started upon the first field with its prefix.
+         *
+         * @param prewarm
+         *            Whether the engine is pre-warmed. Disabled by default.
+         *
+         * @return this builder
+         */
+        public Builder prewarm(boolean prewarm) {
+            this.prewarm = prewarm;
+            return this;
+        }
+
+        /**
+         * Keeps the engine of this configuration for the lifetime of the JVM, shared by all data sets using the
+         * language with a shared engine, so that its startup costs are paid only once per JVM. Such engines also keep
+         * state (e.g. variables defined by scripts) between data sets. The {@value ScriptEngineRegistry#EPOCH} binding
+         * isn't stored in a shared engine, but exposed by the context each script is evaluated with, so data sets with
+         * different epochs may use a shared engine concurrently. Scripts compiled by one data set are kept with the
+         * engine and reused by later data sets, and the preludes of handlers are run into it only once.
+         *
+         * @param sharedEngine
+         *            Whether the engine is shared. Disabled by default.
+         *
+         * @return this builder
+         *
+         * @see ScriptableDataSetConfig#warmUp()
+         */
+        public Builder sharedEngine(boolean sharedEngine) {
+            this.sharedEngine = sharedEngine;
+            return this;
+        }
+
+        /**
+         * Creates the configuration.
+         *
+         * @return the scriptable data set config
+         *
+         * @throws IllegalArgumentException
+         *             if {@link EvaluationMode#BATCH} is used without a batch script generator, row bindings are
+         *             combined with constant folding or {@link EvaluationMode#BATCH}, or a constant marker is given
+         *             without constant folding
+         */
+        public ScriptableDataSetConfig build() {
+            return new ScriptableDataSetConfig(this);
+        }
+    }
+
 }
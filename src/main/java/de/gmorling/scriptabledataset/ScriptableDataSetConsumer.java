@@ -0,0 +1,125 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.Objects;
+
+import javax.script.ScriptContext;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+
+/**
+ * An <code>IDataSetConsumer</code> decorator, that evaluates the scripts contained in each row before passing the row
+ * on to the wrapped consumer. Rows are processed one at a time as they are emitted by a producer, so no table is held
+ * in memory, no matter how large the data set is.
+ * <p>
+ * As each row is seen only once, all scripts are evaluated when the row is emitted, regardless of the
+ * {@link EvaluationMode} of their configuration. Usually this consumer isn't used directly but by means of a
+ * {@link ScriptableDataSetProducer}.
+ */
+public class ScriptableDataSetConsumer implements IDataSetConsumer {
+
+    /** The wrapped. */
+    private final IDataSetConsumer wrapped;
+
+    /** The registry. */
+    private final ScriptEngineRegistry registry;
+
+    /** The name of the current table. */
+    private String tableName;
+
+    /** The column names of the current table. */
+    private String[] columnNames;
+
+    /** The index of the next row of the current table. */
+    private int row;
+
+    /**
+     * Creates a new ScriptableDataSetConsumer.
+     *
+     * @param wrapped
+     *            The consumer to pass the evaluated rows to. May not be null.
+     * @param registry
+     *            The registry providing the script engines and handlers. May not be null.
+     */
+    public ScriptableDataSetConsumer(IDataSetConsumer wrapped, ScriptEngineRegistry registry) {
+
+        Objects.requireNonNull(wrapped);
+        Objects.requireNonNull(registry);
+
+        this.wrapped = wrapped;
+        this.registry = registry;
+    }
+
+    @Override
+    public void startDataSet() throws DataSetException {
+        wrapped.startDataSet();
+    }
+
+    @Override
+    public void endDataSet() throws DataSetException {
+        wrapped.endDataSet();
+    }
+
+    @Override
+    public void startTable(ITableMetaData metaData) throws DataSetException {
+
+        Column[] columns = metaData.getColumns();
+
+        tableName = metaData.getTableName();
+        columnNames = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnNames[i] = columns[i].getColumnName();
+        }
+        row = 0;
+
+        wrapped.startTable(metaData);
+    }
+
+    @Override
+    public void endTable() throws DataSetException {
+        wrapped.endTable();
+    }
+
+    @Override
+    public void row(Object[] values) throws DataSetException {
+
+        // the producer's array is only copied if it actually contains a script
+        Object[] evaluated = values;
+
+        for (int i = 0; i < values.length; i++) {
+
+            // only strings can be processed
+            if (values[i] instanceof String script) {
+
+                ScriptInvocationPipeline pipeline = registry.matchPipeline(script);
+
+                // found engine for prefix
+                if (pipeline != null) {
+                    if (evaluated == values) {
+                        evaluated = values.clone();
+                    }
+                    ScriptContext context = pipeline.isRowBindings() ? RowBindings.bind(pipeline.getEngine(),
+                            registry, tableName, columnNames, row, evaluated, pipeline.getEpoch()) : null;
+                    evaluated[i] = pipeline.evaluate(tableName, columnNames[i], row, script, context);
+                } else {
+                    Object substituted = registry.substitute(script);
+                    if (substituted != script) {
+                        if (evaluated == values) {
+                            evaluated = values.clone();
+                        }
+                        evaluated[i] = substituted;
+                    }
+                }
+            }
+        }
+
+        row++;
+        wrapped.row(evaluated);
+    }
+}
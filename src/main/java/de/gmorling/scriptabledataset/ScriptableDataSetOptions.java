@@ -0,0 +1,263 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import lombok.ToString;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Options applying to a data set as a whole rather than to one scripting language, given to the constructor of
+ * {@link ScriptableDataSet} (or {@link ScriptableDataSetProducer}) next to the configurations:
+ *
+ * <pre>
+ * ScriptableDataSetOptions options = ScriptableDataSetOptions.builder().lookAhead(2)
+ *         .replacement(&quot;[NULL]&quot;, null).build();
+ * IDataSet dataSet = new ScriptableDataSet(wrapped, Instant.now(), options, groovyConfig, jrubyConfig);
+ * </pre>
+ *
+ * Options are immutable and may be shared by data sets used from several threads.
+ */
+@ToString
+public class ScriptableDataSetOptions {
+
+    /** The suggested directory for {@link Builder#resultCacheDirectory(Path)}, within the Maven build directory. */
+    public static final Path DEFAULT_RESULT_CACHE_DIRECTORY = Path.of("target", "scriptable-dataset-cache");
+
+    /** The options of data sets not given any. */
+    private static final ScriptableDataSetOptions DEFAULTS = builder().build();
+
+    /** The number of tables evaluated ahead of time. */
+    private final int lookAhead;
+
+    /** The name of the column giving the number of rows generated by a template row, or null. */
+    private final String rowGeneratorColumn;
+
+    /** The exact replacements by literal. */
+    private final Map<String, Object> replacements;
+
+    /** The substring replacements by substring. */
+    private final Map<String, String> substringReplacements;
+
+    /** The directory caching script results across runs, or null. */
+    private final Path resultCacheDirectory;
+
+    /**
+     * Creates new options from the given builder.
+     *
+     * @param builder
+     *            the builder
+     */
+    private ScriptableDataSetOptions(Builder builder) {
+        this.lookAhead = builder.lookAhead;
+        this.rowGeneratorColumn = builder.rowGeneratorColumn;
+        this.replacements = Collections.unmodifiableMap(new LinkedHashMap<>(builder.replacements));
+        this.substringReplacements = Collections.unmodifiableMap(new LinkedHashMap<>(builder.substringReplacements));
+        this.resultCacheDirectory = builder.resultCacheDirectory;
+    }
+
+    /**
+     * Creates a builder for data set options.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the default options: no look-ahead, row generation, replacements or result cache.
+     *
+     * @return the default options
+     */
+    public static ScriptableDataSetOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Gets the number of tables whose scripts are evaluated on background threads ahead of time, while the current
+     * table is consumed.
+     *
+     * @return the look-ahead, 0 if tables are evaluated when they are reached
+     */
+    public int getLookAhead() {
+        return lookAhead;
+    }
+
+    /**
+     * Gets the name of the column giving the number of rows generated by a template row.
+     *
+     * @return the column name, or null if no rows are generated
+     */
+    public String getRowGeneratorColumn() {
+        return rowGeneratorColumn;
+    }
+
+    /**
+     * Gets the exact replacements of literal field values.
+     *
+     * @return the replacement values by literal, in the order they were given
+     */
+    public Map<String, Object> getReplacements() {
+        return replacements;
+    }
+
+    /**
+     * Gets the replacements of substrings of literal field values.
+     *
+     * @return the replacements by substring, in the order they were given
+     */
+    public Map<String, String> getSubstringReplacements() {
+        return substringReplacements;
+    }
+
+    /**
+     * Gets the directory in which the results of scripts of configurations with
+     * {@link ScriptableDataSetConfig#isResultCaching()} are cached across runs.
+     *
+     * @return the directory, or null if results aren't cached
+     */
+    public Path getResultCacheDirectory() {
+        return resultCacheDirectory;
+    }
+
+    /**
+     * Builder for {@link ScriptableDataSetOptions}.
+     */
+    public static final class Builder {
+
+        /** The number of tables evaluated ahead of time. */
+        private int lookAhead;
+
+        /** The name of the column giving the number of rows generated by a template row. */
+        private String rowGeneratorColumn;
+
+        /** The exact replacements by literal. */
+        private final Map<String, Object> replacements = new LinkedHashMap<>();
+
+        /** The substring replacements by substring. */
+        private final Map<String, String> substringReplacements = new LinkedHashMap<>();
+
+        /** The directory caching script results across runs. */
+        private Path resultCacheDirectory;
+
+        /**
+         * Instantiates a new builder.
+         */
+        private Builder() {
+            // Use ScriptableDataSetOptions.builder()
+        }
+
+        /**
+         * Sets the number of upcoming tables whose scripts are evaluated on background threads while the current
+         * table is consumed, e.g. inserted into the database by DBUnit, so that scripting and database I/O overlap.
+         * Tables are still returned in the order of the wrapped data set. Only has an effect if a configuration of the
+         * data set uses an eager {@link EvaluationMode}. Disabled by default.
+         *
+         * @param lookAhead
+         *            The number of tables evaluated ahead of time. May not be negative, 0 disables look-ahead.
+         *
+         * @return this builder
+         */
+        public Builder lookAhead(int lookAhead) {
+            Validate.isTrue(lookAhead >= 0, "Look-ahead must not be negative: %s", lookAhead);
+            this.lookAhead = lookAhead;
+            return this;
+        }
+
+        /**
+         * Makes rows with a value in the given column templates, each expanding into as many rows as given by that
+         * value (a number or a script returning one). The column is hidden from the table meta data, and the generated
+         * rows only exist while the table is read. Scripts of the template row tell the generated rows apart by the
+         * bindings <code>row</code> and <code>seq</code> (the number of the row among those generated by its
+         * template, starting with 1), which requires a configuration with
+         * {@link ScriptableDataSetConfig.Builder#rowBindings(boolean)}. Doesn't apply to streaming data sets.
+         *
+         * @param rowGeneratorColumn
+         *            The name of the generator column, e.g. "rows". May be null, which disables row generation.
+         *
+         * @return this builder
+         */
+        public Builder rowGeneratorColumn(String rowGeneratorColumn) {
+            this.rowGeneratorColumn = rowGeneratorColumn;
+            return this;
+        }
+
+        /**
+         * Replaces fields equal to the given literal, like <code>ReplacementDataSet.addReplacementObject()</code> of
+         * DBUnit, but without stacking another data set. Replacements apply to all fields of the data set which aren't
+         * scripts, whatever their prefix.
+         *
+         * @param literal
+         *            The literal, e.g. "[NULL]". May not be empty.
+         * @param value
+         *            The replacement. May be null.
+         *
+         * @return this builder
+         */
+        public Builder replacement(String literal, Object value) {
+            Validate.notEmpty(literal, "Literal must not be empty");
+            this.replacements.put(literal, value);
+            return this;
+        }
+
+        /**
+         * Replaces all occurrences of the given substring within fields, like
+         * <code>ReplacementDataSet.addReplacementSubstring()</code> of DBUnit. Substring replacements are applied in
+         * order to fields which aren't scripts and don't match an exact {@link #replacement(String, Object)}.
+         *
+         * @param substring
+         *            The substring, e.g. "${schema}". May not be empty.
+         * @param replacement
+         *            The replacement. May not be null.
+         *
+         * @return this builder
+         */
+        public Builder substringReplacement(String substring, String replacement) {
+            Validate.notEmpty(substring, "Substring must not be empty");
+            Objects.requireNonNull(replacement);
+            this.substringReplacements.put(substring, replacement);
+            return this;
+        }
+
+        /**
+         * Caches the results of the scripts of all configurations with
+         * {@link ScriptableDataSetConfig.Builder#resultCaching(boolean)} in the given directory, so that later runs
+         * (e.g. other test JVMs of the same build) read them from a file instead of evaluating the scripts again. There
+         * is one file per table, keyed by a hash of the table contents, these options, the result-affecting options
+         * of all configurations (language, prefix, row bindings, handler classes and preludes) and the engine version;
+         * any change yields a new file. The least recently used files are deleted once the directory holds more than a
+         * thousand. Cached fields are evaluated all at once, as with {@link EvaluationMode#EAGER}, when a table is read
+         * for the first time. The evaluation epoch is part of the key if a cached script of the table names
+         * {@value ScriptEngineRegistry#EPOCH}, a prelude names it or a caching configuration uses row bindings; such
+         * tables are only read from the cache by data sets with a fixed epoch.
+         *
+         * @param resultCacheDirectory
+         *            The directory, e.g. {@link ScriptableDataSetOptions#DEFAULT_RESULT_CACHE_DIRECTORY}. It is created
+         *            if it doesn't exist. May be null, which disables the cache.
+         *
+         * @return this builder
+         */
+        public Builder resultCacheDirectory(Path resultCacheDirectory) {
+            this.resultCacheDirectory = resultCacheDirectory;
+            return this;
+        }
+
+        /**
+         * Builds the options.
+         *
+         * @return the options
+         */
+        public ScriptableDataSetOptions build() {
+            return new ScriptableDataSetOptions(this);
+        }
+    }
+}
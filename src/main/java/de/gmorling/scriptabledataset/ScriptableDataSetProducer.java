@@ -0,0 +1,83 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.apache.commons.lang3.Validate;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.dbunit.dataset.stream.IDataSetProducer;
+
+/**
+ * An <code>IDataSetProducer</code> decorator, that evaluates script expressions row by row as they are emitted by the
+ * wrapped producer. Combined with a <code>StreamingDataSet</code>, this allows the usage of scripts in data sets too
+ * large to be held in memory:
+ *
+ * <pre>
+ * IDataSet scriptableDS = new StreamingDataSet(new ScriptableDataSetProducer(
+ *      new FlatXmlProducer(new InputSource(&quot;huge.xml&quot;)), new ScriptableDataSetConfig(&quot;groovy&quot;, &quot;groovy:&quot;)));
+ * </pre>
+ *
+ * In contrast to {@link ScriptableDataSet}, tables can only be read once and in order, as dictated by the streaming
+ * data set.
+ */
+public class ScriptableDataSetProducer implements IDataSetProducer {
+
+    /** The wrapped. */
+    private final IDataSetProducer wrapped;
+
+    /** The registry. */
+    private final ScriptEngineRegistry registry;
+
+    /**
+     * Creates a new ScriptableDataSetProducer.
+     *
+     * @param wrapped
+     *            Another producer to be wrapped by this scriptable producer. Must not be null.
+     * @param configurations
+     *            At least one scriptable data set configuration.
+     */
+    public ScriptableDataSetProducer(IDataSetProducer wrapped, ScriptableDataSetConfig... configurations) {
+        this(wrapped, ScriptableDataSetOptions.defaults(), configurations);
+    }
+
+    /**
+     * Creates a new ScriptableDataSetProducer with options applying to the data set as a whole. Of these, only literal
+     * replacements apply to streamed tables.
+     *
+     * @param wrapped
+     *            Another producer to be wrapped by this scriptable producer. Must not be null.
+     * @param options
+     *            The options of the data set. Must not be null.
+     * @param configurations
+     *            At least one scriptable data set configuration.
+     */
+    public ScriptableDataSetProducer(IDataSetProducer wrapped, ScriptableDataSetOptions options,
+            ScriptableDataSetConfig... configurations) {
+
+        Objects.requireNonNull(wrapped);
+        Objects.requireNonNull(options);
+
+        Objects.requireNonNull(configurations);
+        Validate.noNullElements(configurations);
+        Validate.notEmpty(configurations);
+
+        this.wrapped = wrapped;
+        this.registry = new ScriptEngineRegistry(Arrays.asList(configurations), Instant.now(), options);
+    }
+
+    @Override
+    public void setConsumer(IDataSetConsumer consumer) throws DataSetException {
+        wrapped.setConsumer(new ScriptableDataSetConsumer(consumer, registry));
+    }
+
+    @Override
+    public void produce() throws DataSetException {
+        wrapped.produce();
+    }
+}
@@ -19,8 +19,11 @@ public class ScriptableIterator implements ITableIterator {
     /** The wrapped. */
     private ITableIterator wrapped;
 
-    /** The configurations. */
-    private List<ScriptableDataSetConfig> configurations;
+    /** The registry. */
+    private ScriptEngineRegistry registry;
+
+    /** The table at the current position, or null if not created yet. */
+    private ScriptableTable current;
 
     /**
      * Instantiates a new scriptable iterator.
@@ -31,23 +34,57 @@ public class ScriptableIterator implements ITableIterator {
      *            the configurations
      */
     public ScriptableIterator(ITableIterator wrapped, List<ScriptableDataSetConfig> configurations) {
+        this(wrapped, new ScriptEngineRegistry(configurations));
+    }
+
+    /**
+     * Instantiates a new scriptable iterator.
+     *
+     * @param wrapped
+     *            the wrapped
+     * @param registry
+     *            the registry shared by all tables of this iterator
+     */
+    public ScriptableIterator(ITableIterator wrapped, ScriptEngineRegistry registry) {
         this.wrapped = wrapped;
-        this.configurations = configurations;
+        this.registry = registry;
     }
 
     @Override
     public ITable getTable() throws DataSetException {
-        return new ScriptableTable(wrapped.getTable(), configurations);
+        ScriptableTable table = getCurrentTable();
+        table.evaluateEagerly();
+        return table;
     }
 
     @Override
     public ITableMetaData getTableMetaData() throws DataSetException {
-        return wrapped.getTableMetaData();
+        if (registry.getOptions().getRowGeneratorColumn() == null) {
+            return wrapped.getTableMetaData();
+        }
+        // without the generator column
+        return getCurrentTable().getTableMetaData();
     }
 
     @Override
     public boolean next() throws DataSetException {
+        current = null;
         return wrapped.next();
     }
 
+    /**
+     * Gets the table at the current position, creating it if that hasn't been done before.
+     *
+     * @return the table
+     *
+     * @throws DataSetException
+     *             if the wrapped table can't be read
+     */
+    private ScriptableTable getCurrentTable() throws DataSetException {
+        if (current == null) {
+            current = new ScriptableTable(wrapped.getTable(), registry);
+        }
+        return current;
+    }
+
 }
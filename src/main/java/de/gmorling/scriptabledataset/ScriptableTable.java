@@ -4,20 +4,24 @@
  */
 package de.gmorling.scriptabledataset;
 
-import de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler;
-import de.gmorling.scriptabledataset.handlers.StandardHandlerConfig;
+import de.gmorling.scriptabledataset.ScriptEnginePool.PooledEngine;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 
+import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.ITable;
 import org.dbunit.dataset.ITableMetaData;
@@ -26,6 +30,14 @@ import org.slf4j.LoggerFactory;
 
 /**
  * ITable implementation, that allows the usage of script statements as field values.
+ * <p>
+ * Script results are converted into the type of their column as given by the table meta data (unless it is unknown,
+ * as for flat XML data sets), using a converter chosen once per column. So results arrive already typed and aren't cast
+ * again on every read.
+ * <p>
+ * A table may be read by several threads at once, e.g. when tests running in parallel share a data set. Analysis and
+ * eager evaluation happen once under the table's lock, stored results are kept in a synchronized store, and scripts are
+ * evaluated under the lock of their engine unless the engine declares itself thread-safe.
  */
 public class ScriptableTable implements ITable {
 
@@ -33,16 +45,35 @@ public class ScriptableTable implements ITable {
     private final Logger logger = LoggerFactory.getLogger(ScriptableTable.class);
 
     /** The wrapped. */
-    private ITable wrapped;
+    private final ITable wrapped;
 
-    /** The engines by prefix. */
-    private Map<String, ScriptEngine> enginesByPrefix = new HashMap<>();
+    /** The registry. */
+    private final ScriptEngineRegistry registry;
 
-    /** The handlers by prefix. */
-    private Map<String, List<ScriptInvocationHandler>> handlersByPrefix = new HashMap<>();
+    /** The evaluated values, if any configuration materializes its results. Created upon first usage. */
+    private volatile CellValueStore valueStore;
+
+    /** Whether the scripts of configurations with eager evaluation have been evaluated. */
+    private volatile boolean eagerlyEvaluated;
+
+    /** Whether the wrapped table has been analyzed. */
+    private volatile boolean analyzed;
+
+    /** The column indexes by column name, as given by the table meta data. */
+    private Map<String, Integer> columnIndexes;
+
+    /** The converters of the script results by column index. */
+    private ValueConverter[] converters;
+
+    /** The script statistics, or null if the wrapped table doesn't allow random access. */
+    private ScriptStatistics statistics;
+
+    /** Whether a column without scripts contains literals changed by a replacement, by column index. */
+    private boolean[] substitutedColumns;
 
     /**
-     * Creates a new ScriptableTable.
+     * Creates a new ScriptableTable. The script engines are resolved for this table only; prefer
+     * {@link #ScriptableTable(ITable, ScriptEngineRegistry)} to share them between several tables.
      *
      * @param wrapped
      *            The ITable to be wrapped by this scriptable table. May not be null.
@@ -50,32 +81,21 @@ public class ScriptableTable implements ITable {
      *            An list with configurations
      */
     public ScriptableTable(ITable wrapped, List<ScriptableDataSetConfig> configurations) {
+        this(wrapped, new ScriptEngineRegistry(configurations));
+    }
 
-        this.wrapped = wrapped;
-
-        ScriptEngineManager manager = new ScriptEngineManager();
-
-        // load the engines
-        for (ScriptableDataSetConfig oneConfig : configurations) {
-
-            ScriptEngine engine = manager.getEngineByName(oneConfig.getLanguageName());
-
-            if (engine == null) {
-                throw new RuntimeException(
-                        "No scripting engine found for language \"" + oneConfig.getLanguageName() + "\".");
-            }
-            enginesByPrefix.put(oneConfig.getPrefix(), engine);
-
-            List<ScriptInvocationHandler> handlers = getAllHandlers(oneConfig);
-
-            for (ScriptInvocationHandler oneHandler : handlers) {
-                oneHandler.setScriptEngine(engine);
-            }
-
-            handlersByPrefix.put(oneConfig.getPrefix(), handlers);
-
-            logger.info("Registered scripting engine {} for language {}.", engine, oneConfig.getLanguageName());
-        }
+    /**
+     * Creates a new ScriptableTable.
+     *
+     * @param wrapped
+     *            The ITable to be wrapped by this scriptable table. May not be null.
+     * @param registry
+     *            The registry providing the script engines and handlers. May not be null.
+     */
+    public ScriptableTable(ITable wrapped, ScriptEngineRegistry registry) {
+        this.wrapped = GeneratedRowsTable.expand(wrapped, registry);
+        this.registry = registry;
+        this.eagerlyEvaluated = !registry.isEager();
     }
 
     @Override
@@ -91,66 +111,631 @@ public class ScriptableTable implements ITable {
     @Override
     public Object getValue(int row, String column) throws DataSetException {
 
+        if (!analyzed) {
+            analyze();
+        }
+        if (!eagerlyEvaluated) {
+            evaluateEagerly();
+        }
+
+        int columnIndex = getColumnIndex(column);
+
+        // columns without any script are passed through, only replacing literals of columns containing any
+        if (statistics != null && !statistics.isScriptedColumn(columnIndex)) {
+            Object theValue = wrapped.getValue(row, column);
+            if (substitutedColumns[columnIndex] && theValue instanceof String literal) {
+                return registry.substitute(literal);
+            }
+            return theValue;
+        }
+
+        if (valueStore != null && valueStore.contains(row, columnIndex)) {
+            return valueStore.get(row, columnIndex);
+        }
+
         Object theValue = wrapped.getValue(row, column);
 
         // only strings can be processed
         if (theValue instanceof String script) {
 
-            for (Entry<String, ScriptEngine> oneEntry : enginesByPrefix.entrySet()) {
+            ScriptInvocationPipeline pipeline = registry.matchPipeline(script);
+
+            // found engine for prefix
+            if (pipeline != null) {
+
+                String tableName = getTableMetaData().getTableName();
+                theValue = converters[columnIndex].convert(pipeline.evaluate(tableName, column, row, script,
+                        getRowContext(pipeline, pipeline.getEngine(), tableName, row)));
+
+                if (statistics != null && pipeline.getConfiguration().getEvaluationMode().isMaterialized()) {
+                    getValueStore().put(row, columnIndex, theValue);
+                }
+            } else {
+                theValue = registry.substitute(script);
+            }
+        }
+
+        return theValue;
+    }
+
+    /**
+     * Gets the number of a row among the rows generated by its template row, as exposed to scripts by the binding
+     * {@value RowBindings#SEQUENCE}.
+     *
+     * @param row
+     *            the row
+     *
+     * @return the sequence number starting with 1, or 1 if the row isn't generated
+     */
+    int getSequence(int row) {
+        return wrapped instanceof GeneratedRowsTable generated ? generated.getSequence(row) : 1;
+    }
+
+    /**
+     * Gets the statistics about the scripts contained in this table.
+     *
+     * @return the script statistics, or null if the wrapped table doesn't allow random access (e.g. a table of a
+     *         streaming data set)
+     *
+     * @throws DataSetException
+     *             if the wrapped table can't be read
+     */
+    public ScriptStatistics getScriptStatistics() throws DataSetException {
+        if (!analyzed) {
+            analyze();
+        }
+        return statistics;
+    }
+
+    /**
+     * Describes the memory used by the script results stored for this table by configurations with a materialized
+     * evaluation mode.
+     *
+     * @return the footprint, or null if no result has been stored
+     */
+    public StorageFootprint getStorageFootprint() {
+        return valueStore == null ? null : valueStore.getFootprint(getTableMetaData().getTableName());
+    }
+
+    /**
+     * Reads all fields of the wrapped table once, recording which columns contain scripts and which columns contain
+     * literals changed by a replacement. Does nothing if this has been done before.
+     *
+     * @throws DataSetException
+     *             if the wrapped table can't be read
+     */
+    private synchronized void analyze() throws DataSetException {
 
-                String prefix = oneEntry.getKey();
+        if (analyzed) {
+            return;
+        }
 
-                // found engine for prefix
-                if (script.startsWith(prefix)) {
+        Column[] columns = getTableMetaData().getColumns();
 
-                    ScriptEngine engine = oneEntry.getValue();
-                    script = script.substring(prefix.length());
+        Map<String, Integer> theColumnIndexes = new HashMap<>();
+        for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+            theColumnIndexes.put(columns[columnIndex].getColumnName(), columnIndex);
+        }
+        columnIndexes = theColumnIndexes;
 
-                    List<ScriptInvocationHandler> handlers = handlersByPrefix.get(oneEntry.getKey());
+        ValueConverter[] theConverters = new ValueConverter[columns.length];
+        for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+            theConverters[columnIndex] = ValueConverter.forColumn(columns[columnIndex]);
+        }
+        converters = theConverters;
+
+        int rowCount;
+        try {
+            rowCount = getRowCount();
+        } catch (UnsupportedOperationException e) {
+            // forward only table, every column has to be checked on access
+            logger.debug("Table {} doesn't allow random access, skipping analysis.",
+                    getTableMetaData().getTableName());
+            analyzed = true;
+            return;
+        }
 
-                    // preInvoke
-                    for (ScriptInvocationHandler handler : handlers) {
-                        script = handler.preInvoke(script);
+        Map<String, Integer> scriptedFieldsByLanguage = new TreeMap<>();
+        List<String> scriptedColumns = new ArrayList<>();
+        BitSet scriptedColumnIndexes = new BitSet(columns.length);
+        boolean[] theSubstitutedColumns = new boolean[columns.length];
+        boolean substitutions = registry.hasSubstitutions();
+
+        for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+            for (int row = 0; row < rowCount; row++) {
+
+                Object theValue = wrapped.getValue(row, columns[columnIndex].getColumnName());
+
+                if (theValue instanceof String script) {
+                    ScriptableDataSetConfig config = registry.matchConfiguration(script);
+                    if (config != null) {
+                        scriptedFieldsByLanguage.merge(config.getLanguageName(), 1, Integer::sum);
+                        if (!scriptedColumnIndexes.get(columnIndex)) {
+                            scriptedColumnIndexes.set(columnIndex);
+                            scriptedColumns.add(columns[columnIndex].getColumnName());
+                        }
+                    } else if (substitutions && !theSubstitutedColumns[columnIndex]) {
+                        theSubstitutedColumns[columnIndex] = !script.equals(registry.substitute(script));
                     }
+                }
+            }
+        }
+
+        statistics = new ScriptStatistics(getTableMetaData().getTableName(), rowCount, columns.length,
+                scriptedFieldsByLanguage, scriptedColumns, scriptedColumnIndexes);
+        substitutedColumns = theSubstitutedColumns;
+        analyzed = true;
 
-                    logger.debug("Executing script: {}", script);
+        logger.debug("Analyzed table: {}", statistics);
+    }
 
-                    // the actual script evaluation
-                    try {
-                        theValue = engine.eval(script);
-                    } catch (ScriptException e) {
-                        throw new RuntimeException(e);
+    /**
+     * Evaluates all scripts of configurations using an eager {@link EvaluationMode}, storing their results. Does
+     * nothing if this has been done before.
+     * <p>
+     * The results of configurations caching them across runs are read from the {@link ResultCache} instead, if it
+     * holds them for this table, without resolving their engines. Otherwise they are evaluated like those of
+     * {@link EvaluationMode#EAGER} configurations (unless their mode is eager already) and written to the cache.
+     *
+     * @throws DataSetException
+     *             if a value can't be read from the wrapped table
+     */
+    synchronized void evaluateEagerly() throws DataSetException {
+
+        if (eagerlyEvaluated) {
+            return;
+        }
+
+        if (!analyzed) {
+            analyze();
+        }
+
+        // forward only tables can't be materialized
+        if (statistics == null) {
+            eagerlyEvaluated = true;
+            return;
+        }
+
+        String tableName = getTableMetaData().getTableName();
+        Column[] columns = getTableMetaData().getColumns();
+        Map<ScriptInvocationPipeline, List<PendingField>> parallelFields = new LinkedHashMap<>();
+        Map<ScriptInvocationPipeline, List<PendingField>> batchFields = new LinkedHashMap<>();
+
+        ResultCache resultCache = registry.getResultCache();
+        ResultCache.TableKey cacheKey = resultCache != null ? resultCache.computeKey(wrapped, registry) : null;
+        boolean cacheHit = cacheKey != null && loadCachedResults(resultCache, cacheKey);
+
+        for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+
+            if (!statistics.isScriptedColumn(columnIndex)) {
+                continue;
+            }
+
+            for (int row = 0; row < getRowCount(); row++) {
+
+                String column = columns[columnIndex].getColumnName();
+                Object theValue = wrapped.getValue(row, column);
+
+                if (theValue instanceof String script) {
+                    ScriptableDataSetConfig config = registry.matchConfiguration(script);
+                    boolean cachedField = config != null && cacheKey != null && config.isResultCaching();
+                    if (config == null || cachedField && cacheHit) {
+                        continue;
+                    }
+
+                    ScriptInvocationPipeline pipeline = registry.matchPipeline(script);
+                    EvaluationMode mode = config.getEvaluationMode();
+                    if (cachedField && !mode.isEager()) {
+                        // all cached fields are needed to write the cache
+                        mode = EvaluationMode.EAGER;
                     }
 
-                    // call postInvoke in reversed order
-                    Collections.reverse(handlers);
-                    for (ScriptInvocationHandler handler : handlers) {
-                        theValue = handler.postInvoke(theValue);
+                    if (mode == EvaluationMode.EAGER) {
+                        store(row, columnIndex, pipeline.evaluate(tableName, column, row, script,
+                                getRowContext(pipeline, pipeline.getEngine(), tableName, row)));
+                    } else if (mode == EvaluationMode.PARALLEL) {
+                        parallelFields.computeIfAbsent(pipeline, p -> new ArrayList<>())
+                                .add(new PendingField(row, columnIndex, column, script));
+                    } else if (mode == EvaluationMode.BATCH) {
+                        batchFields.computeIfAbsent(pipeline, p -> new ArrayList<>())
+                                .add(new PendingField(row, columnIndex, column, script));
                     }
                 }
             }
         }
 
-        return theValue;
+        for (Entry<ScriptInvocationPipeline, List<PendingField>> oneEntry : parallelFields.entrySet()) {
+            evaluatePending(tableName, oneEntry.getKey(), oneEntry.getValue(), EvaluationMode.PARALLEL);
+        }
+
+        for (Entry<ScriptInvocationPipeline, List<PendingField>> oneEntry : batchFields.entrySet()) {
+            evaluatePending(tableName, oneEntry.getKey(), oneEntry.getValue(), EvaluationMode.BATCH);
+        }
+
+        if (cacheKey != null && !cacheHit) {
+            Object[] values = new Object[cacheKey.fields().length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = valueStore.get(cacheKey.getRow(i), cacheKey.getColumnIndex(i));
+            }
+            resultCache.store(cacheKey, values);
+        }
+
+        eagerlyEvaluated = true;
     }
 
     /**
-     * Returns a list with all standard handlers registered for the language of the config and all handlers declared in
-     * the config itself.
+     * Reads the results of the cached fields of this table from the result cache into the value store.
+     *
+     * @param resultCache
+     *            the result cache
+     * @param cacheKey
+     *            the key of this table
      *
-     * @param config
-     *            A config object.
+     * @return true, if the cache held the results
      *
-     * @return A list with handlers. Never null.
+     * @throws DataSetException
+     *             if the value store can't be created
      */
-    private List<ScriptInvocationHandler> getAllHandlers(ScriptableDataSetConfig config) {
+    private boolean loadCachedResults(ResultCache resultCache, ResultCache.TableKey cacheKey) throws DataSetException {
 
-        List<ScriptInvocationHandler> theValue = new ArrayList<>(
-                StandardHandlerConfig.getStandardHandlersByLanguage(config.getLanguageName()));
+        Object[] values = resultCache.load(cacheKey);
+        if (values == null) {
+            return false;
+        }
+
+        CellValueStore theValueStore = getValueStore();
+        for (int i = 0; i < values.length; i++) {
+            theValueStore.put(cacheKey.getRow(i), cacheKey.getColumnIndex(i), values[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the given fields of one pipeline in parallel or in batches and stores their converted results. If the
+     * pipeline folds constants, each distinct foldable script is evaluated only once and scripts folded before aren't
+     * evaluated again.
+     *
+     * @param tableName
+     *            the table name
+     * @param pipeline
+     *            the pipeline
+     * @param fields
+     *            the fields to evaluate
+     * @param mode
+     *            either {@link EvaluationMode#PARALLEL} or {@link EvaluationMode#BATCH}
+     *
+     * @throws DataSetException
+     *             if the value store can't be created or a result can't be converted
+     */
+    private void evaluatePending(String tableName, ScriptInvocationPipeline pipeline, List<PendingField> fields,
+            EvaluationMode mode) throws DataSetException {
+
+        List<PendingField> distinct = fields;
+        List<PendingField> duplicates = null;
+        Map<String, Integer> distinctIndexByScript = null;
+
+        if (pipeline.isConstantFolding()) {
+            distinct = new ArrayList<>();
+            duplicates = new ArrayList<>();
+            distinctIndexByScript = new HashMap<>();
+
+            for (PendingField field : fields) {
+                Object folded = pipeline.getFoldedValue(field.script());
+                if (folded != ScriptInvocationPipeline.NOT_FOLDED) {
+                    store(field.row(), field.columnIndex(), folded);
+                } else if (!pipeline.isFoldable(field.script())
+                        || distinctIndexByScript.putIfAbsent(field.script(), distinct.size()) == null) {
+                    distinct.add(field);
+                } else {
+                    duplicates.add(field);
+                }
+            }
+        }
+
+        Object[] results = mode == EvaluationMode.PARALLEL ? evaluateInParallel(tableName, pipeline, distinct)
+                : evaluateInBatches(tableName, pipeline, distinct);
 
-        // custom handlers
-        theValue.addAll(config.getHandlers());
+        for (int i = 0; i < results.length; i++) {
+            PendingField field = distinct.get(i);
+            pipeline.fold(field.script(), results[i]);
+            store(field.row(), field.columnIndex(), results[i]);
+        }
+
+        if (duplicates != null) {
+            for (PendingField field : duplicates) {
+                store(field.row(), field.columnIndex(), results[distinctIndexByScript.get(field.script())]);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the given fields of one pipeline concurrently. The scripts are pre-processed by the calling thread,
+     * only the evaluation itself is spread over the threads of the shared executor with the configured parallelism.
+     * <p>
+     * If the engines of the language can't be shared between threads, each thread borrows an engine of its own and
+     * post-processes its results while still holding it, as some engines (e.g. GraalJS) don't allow other threads to
+     * access their results meanwhile. Fields are evaluated sequentially instead if handlers bound to a single engine
+     * are registered for the prefix (see
+     * {@link de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler#isEngineIndependent()}).
+     *
+     * @param tableName
+     *            the table name
+     * @param pipeline
+     *            the pipeline
+     * @param fields
+     *            the fields to evaluate
+     *
+     * @return the post-processed results, in the order of the fields
+     *
+     * @throws DataSetException
+     *             if interrupted while waiting for the results
+     */
+    private Object[] evaluateInParallel(String tableName, ScriptInvocationPipeline pipeline, List<PendingField> fields)
+            throws DataSetException {
+
+        ScriptEnginePool pool = pipeline.getEnginePool();
+        Object[] results = new Object[fields.size()];
+
+        if (!pool.isShared() && pipeline.hasEngineBoundHandlers()) {
+            logger.debug(
+                    "Engine for prefix {} isn't thread-safe and has engine bound handlers, evaluating sequentially.",
+                    pipeline.getPrefix());
+            for (int i = 0; i < results.length; i++) {
+                PendingField field = fields.get(i);
+                results[i] = pipeline.evaluate(tableName, field.column(), field.row(), field.script(),
+                        getRowContext(pipeline, pipeline.getEngine(), tableName, field.row()));
+            }
+            return results;
+        }
 
+        String[] scripts = new String[fields.size()];
+        ScriptEvaluationEvent[] events = new ScriptEvaluationEvent[fields.size()];
+        for (int i = 0; i < scripts.length; i++) {
+            PendingField field = fields.get(i);
+            events[i] = pipeline.startEvent(tableName, field.column(), field.row(), field.script());
+            scripts[i] = pipeline.preInvoke(field.script(), events[i]);
+        }
+
+        int parallelism = pipeline.getConfiguration().getParallelism();
+        int chunkSize = (scripts.length + parallelism - 1) / parallelism;
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < scripts.length; start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, scripts.length);
+            tasks.add(() -> {
+                PooledEngine engine = pool.acquire();
+                try {
+                    if (pool.isShared()) {
+                        evaluateChunk(tableName, pipeline, engine, fields, scripts, events, results, from, to);
+                    } else {
+                        // the primary engine may be used by other threads evaluating on access
+                        synchronized (engine.engine()) {
+                            evaluateChunk(tableName, pipeline, engine, fields, scripts, events, results, from, to);
+                            for (int i = from; i < to; i++) {
+                                results[i] = pipeline.postInvoke(results[i], events[i]);
+                            }
+                        }
+                    }
+                } finally {
+                    pool.release(engine);
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> oneFuture : SharedExecutors.getParallelExecutor(parallelism).invokeAll(tasks)) {
+                oneFuture.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataSetException("Interrupted while evaluating scripts with prefix " + pipeline.getPrefix(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (pool.isShared()) {
+                results[i] = pipeline.postInvoke(results[i], events[i]);
+            }
+            pipeline.finishEvent(events[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates a chunk of pre-invoked fields with a borrowed engine.
+     *
+     * @param tableName
+     *            the table name
+     * @param pipeline
+     *            the pipeline
+     * @param engine
+     *            the borrowed engine
+     * @param fields
+     *            all fields to evaluate
+     * @param scripts
+     *            the pre-invoked scripts of all fields
+     * @param events
+     *            the events of all fields, with null elements if no listener is registered
+     * @param results
+     *            the raw results of all fields, to be filled for the chunk
+     * @param from
+     *            the index of the first field of the chunk
+     * @param to
+     *            the index after the last field of the chunk
+     */
+    private void evaluateChunk(String tableName, ScriptInvocationPipeline pipeline, PooledEngine engine,
+            List<PendingField> fields, String[] scripts, ScriptEvaluationEvent[] events, Object[] results, int from,
+            int to) {
+        for (int i = from; i < to; i++) {
+            PendingField field = fields.get(i);
+            results[i] = pipeline.eval(engine.engine(), engine.cache(), scripts[i], tableName, field.column(),
+                    field.row(), getRowContext(pipeline, engine.engine(), tableName, field.row()), events[i]);
+        }
+    }
+
+    /**
+     * Evaluates the given fields of one pipeline in batches of the configured size.
+     *
+     * @param tableName
+     *            the table name
+     * @param pipeline
+     *            the pipeline
+     * @param fields
+     *            the fields to evaluate
+     *
+     * @return the post-processed results, in the order of the fields
+     */
+    private Object[] evaluateInBatches(String tableName, ScriptInvocationPipeline pipeline,
+            List<PendingField> fields) {
+
+        int batchSize = pipeline.getConfiguration().getBatchSize();
+        Object[] results = new Object[fields.size()];
+
+        for (int start = 0; start < fields.size(); start += batchSize) {
+
+            List<PendingField> batch = fields.subList(start, Math.min(start + batchSize, fields.size()));
+            String[] columnNames = new String[batch.size()];
+            int[] rows = new int[batch.size()];
+            String[] scripts = new String[batch.size()];
+            for (int i = 0; i < scripts.length; i++) {
+                columnNames[i] = batch.get(i).column();
+                rows[i] = batch.get(i).row();
+                scripts[i] = batch.get(i).script();
+            }
+
+            System.arraycopy(pipeline.evaluateBatch(tableName, columnNames, rows, scripts), 0, results, start,
+                    scripts.length);
+        }
+        return results;
+    }
+
+    /**
+     * Converts the result of a script into the type of its column and stores it.
+     *
+     * @param row
+     *            the row
+     * @param columnIndex
+     *            the column index
+     * @param theValue
+     *            the post-processed result of the script
+     *
+     * @throws DataSetException
+     *             if the value store can't be created or the result can't be converted
+     */
+    private void store(int row, int columnIndex, Object theValue) throws DataSetException {
+        getValueStore().put(row, columnIndex, converters[columnIndex].convert(theValue));
+    }
+
+    /**
+     * Gets the context to evaluate a script of the given row with.
+     *
+     * @param pipeline
+     *            the pipeline evaluating the script
+     * @param engine
+     *            the engine evaluating the script
+     * @param tableName
+     *            the table name
+     * @param row
+     *            the row
+     *
+     * @return the context, or null if the pipeline doesn't use row bindings
+     */
+    private ScriptContext getRowContext(ScriptInvocationPipeline pipeline, ScriptEngine engine, String tableName,
+            int row) {
+        return pipeline.isRowBindings() ? RowBindings.bind(engine, this, tableName, row, pipeline.getEpoch())
+                : null;
+    }
+
+    /**
+     * Gets the value of a field, if it is known without evaluating a script: a plain value or a stored result.
+     *
+     * @param row
+     *            the row
+     * @param column
+     *            the column name
+     *
+     * @return the value, or {@link RowBindings#ABSENT} if the column doesn't exist or holds a script not evaluated yet
+     */
+    Object getKnownValue(int row, String column) {
+
+        Integer columnIndex = columnIndexes.get(column);
+        if (columnIndex == null) {
+            return RowBindings.ABSENT;
+        }
+        if (valueStore != null && valueStore.contains(row, columnIndex)) {
+            return valueStore.get(row, columnIndex);
+        }
+
+        Object theValue;
+        try {
+            theValue = wrapped.getValue(row, column);
+        } catch (DataSetException e) {
+            throw new RuntimeException(e);
+        }
+        if (theValue instanceof String field) {
+            return registry.isScript(field) ? RowBindings.ABSENT : registry.substitute(field);
+        }
         return theValue;
     }
+
+    /**
+     * Gets the value store, creating it upon first usage.
+     *
+     * @return the value store
+     *
+     * @throws DataSetException
+     *             if the columns of the table can't be determined
+     */
+    private synchronized CellValueStore getValueStore() throws DataSetException {
+        if (valueStore == null) {
+            valueStore = new CellValueStore(getRowCount(), getTableMetaData().getColumns());
+        }
+        return valueStore;
+    }
+
+    /**
+     * Gets the index of the given column.
+     *
+     * @param column
+     *            the column name
+     *
+     * @return the column index
+     *
+     * @throws DataSetException
+     *             if the table has no such column
+     */
+    private int getColumnIndex(String column) throws DataSetException {
+        Integer columnIndex = columnIndexes.get(column);
+        return columnIndex != null ? columnIndex : getTableMetaData().getColumnIndex(column);
+    }
+
+    /**
+     * Gets the number of values stored for this table by configurations with a materialized evaluation mode.
+     *
+     * @return the number of stored values
+     */
+    int getStoredValueCount() {
+        return valueStore == null ? 0 : valueStore.size();
+    }
+
+    /**
+     * A field to be evaluated in parallel or as part of a batch.
+     *
+     * @param row
+     *            the row
+     * @param columnIndex
+     *            the column index
+     * @param column
+     *            the column name
+     * @param script
+     *            the field containing the script, including the prefix
+     */
+    private record PendingField(int row, int columnIndex, String column, String script) {
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+/**
+ * Holds the engines of configurations with {@link ScriptableDataSetConfig#isSharedEngine()}, one per language, for the
+ * lifetime of the JVM, together with their compiled script caches and the preludes run into them. So the startup costs
+ * of a language (and the imports of its handlers, see {@link ScriptableDataSetConfig#warmUp()}) and the compilation of
+ * recurring scripts are paid once per JVM instead of once per data set.
+ */
+final class SharedEngines {
+
+    /** The engines by language. */
+    private static final Map<String, ScriptEngine> ENGINES = new ConcurrentHashMap<>();
+
+    /** The preludes run so far by language, guarded by the lock of the language's engine. */
+    private static final Map<String, Set<String>> PRELUDES = new ConcurrentHashMap<>();
+
+    /** The compiled script caches of the shared engines. */
+    private static final Map<CacheKey, CompiledScriptCache> CACHES = new ConcurrentHashMap<>();
+
+    /** The script engine manager. */
+    private static final ScriptEngineManager MANAGER = new ScriptEngineManager();
+
+    /**
+     * Instantiates a new shared engines.
+     */
+    private SharedEngines() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * Gets the shared engine of a language, starting it if that hasn't been done before.
+     *
+     * @param languageName
+     *            the language name
+     *
+     * @return the engine
+     */
+    static ScriptEngine get(String languageName) {
+        return ENGINES.computeIfAbsent(languageName, l -> ScriptEngineRegistry.createEngine(MANAGER, l));
+    }
+
+    /**
+     * Gets the compiled script cache of the shared engine of a language, kept with the engine so that data sets using
+     * it find the scripts compiled by earlier data sets. As the cache is keyed by fields including their prefix, each
+     * prefix and cache size has a cache of its own.
+     *
+     * @param languageName
+     *            the language name
+     * @param prefix
+     *            the prefix of the configuration
+     * @param maximumSize
+     *            the maximum number of cached scripts
+     *
+     * @return the cache
+     */
+    static CompiledScriptCache getCompiledScriptCache(String languageName, String prefix, int maximumSize) {
+        return CACHES.computeIfAbsent(new CacheKey(languageName, prefix, maximumSize),
+                k -> new CompiledScriptCache(get(languageName), maximumSize));
+    }
+
+    /**
+     * Runs the given preludes into the shared engine of a language, skipping those run before by any data set. The
+     * preludes are run holding the engine's lock, as taken for evaluation, so scripts of other data sets aren't
+     * evaluated meanwhile.
+     *
+     * @param languageName
+     *            the language name
+     * @param preludes
+     *            the preludes, in handler order
+     */
+    static void runPreludes(String languageName, List<String> preludes) {
+        ScriptEngine engine = get(languageName);
+        Set<String> run = PRELUDES.computeIfAbsent(languageName, l -> new HashSet<>());
+        synchronized (engine) {
+            for (String onePrelude : preludes) {
+                if (!run.contains(onePrelude)) {
+                    ScriptInvocationPipeline.runPreludes(engine, List.of(onePrelude));
+                    run.add(onePrelude);
+                }
+            }
+        }
+    }
+
+    /**
+     * The key of a compiled script cache.
+     *
+     * @param languageName
+     *            the language name
+     * @param prefix
+     *            the prefix
+     * @param maximumSize
+     *            the maximum number of cached scripts
+     */
+    private record CacheKey(String languageName, String prefix, int maximumSize) {
+    }
+}
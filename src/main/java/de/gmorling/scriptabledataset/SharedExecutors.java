@@ -0,0 +1,83 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the executors shared by all data sets for the lifetime of the JVM. Their threads are daemon threads which
+ * terminate when idle, so neither creating many data sets nor abandoning an iteration leaks threads.
+ */
+final class SharedExecutors {
+
+    /** The maximum number of threads evaluating tables ahead of time, across all data sets. */
+    static final int LOOK_AHEAD_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** The name prefix of the threads evaluating tables ahead of time. */
+    static final String LOOK_AHEAD_THREAD_NAME = "scriptable-dataset-lookahead-";
+
+    /** The number of seconds an idle thread is kept. */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /** The executor evaluating tables ahead of time. */
+    private static final ExecutorService LOOK_AHEAD = createLookAheadExecutor();
+
+    /** The executors for parallel evaluation by parallelism. */
+    private static final Map<Integer, ForkJoinPool> PARALLEL = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new shared executors.
+     */
+    private SharedExecutors() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * Gets the executor evaluating tables ahead of time. The number of tables submitted by one data set is bounded by
+     * its look-ahead; the number of threads is bounded by {@link #LOOK_AHEAD_THREADS}, further tables are queued.
+     *
+     * @return the executor
+     */
+    static ExecutorService getLookAheadExecutor() {
+        return LOOK_AHEAD;
+    }
+
+    /**
+     * Gets the executor for parallel evaluation with the given parallelism, creating it if that hasn't been done
+     * before. All data sets with the same parallelism share one executor, whose threads terminate when idle.
+     *
+     * @param parallelism
+     *            the parallelism
+     *
+     * @return the executor
+     */
+    static ForkJoinPool getParallelExecutor(int parallelism) {
+        return PARALLEL.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    /**
+     * Creates the executor evaluating tables ahead of time.
+     *
+     * @return the executor
+     */
+    private static ExecutorService createLookAheadExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(LOOK_AHEAD_THREADS, LOOK_AHEAD_THREADS, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, LOOK_AHEAD_THREAD_NAME + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
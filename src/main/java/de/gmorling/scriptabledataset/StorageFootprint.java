@@ -0,0 +1,106 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.util.Map;
+
+import lombok.ToString;
+
+/**
+ * Describes the memory used by the stored script results of a {@link ScriptableTable}, as kept by materialized
+ * {@link EvaluationMode}s. Columns whose data type maps to a primitive type are stored in primitive arrays; for columns
+ * stored as objects only the references are counted, not the referenced results. All sizes are estimates for a 64 bit
+ * JVM with compressed references.
+ */
+@ToString
+public class StorageFootprint {
+
+    /** The table name. */
+    private final String tableName;
+
+    /** The number of stored values. */
+    private final int storedValueCount;
+
+    /** The bytes used to record which fields have been evaluated. */
+    private final long bookkeepingBytes;
+
+    /** The storage kinds by column name, e.g. "int" or "object". */
+    private final Map<String, String> kindsByColumn;
+
+    /** The bytes by column name. */
+    private final Map<String, Long> bytesByColumn;
+
+    /**
+     * Creates a new StorageFootprint.
+     *
+     * @param tableName
+     *            the table name
+     * @param storedValueCount
+     *            the number of stored values
+     * @param bookkeepingBytes
+     *            the bytes used to record which fields have been evaluated
+     * @param kindsByColumn
+     *            the storage kinds by column name
+     * @param bytesByColumn
+     *            the bytes by column name
+     */
+    StorageFootprint(String tableName, int storedValueCount, long bookkeepingBytes, Map<String, String> kindsByColumn,
+            Map<String, Long> bytesByColumn) {
+        this.tableName = tableName;
+        this.storedValueCount = storedValueCount;
+        this.bookkeepingBytes = bookkeepingBytes;
+        this.kindsByColumn = kindsByColumn;
+        this.bytesByColumn = bytesByColumn;
+    }
+
+    /**
+     * Gets the table name.
+     *
+     * @return the table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Gets the number of stored values.
+     *
+     * @return the number of stored values
+     */
+    public int getStoredValueCount() {
+        return storedValueCount;
+    }
+
+    /**
+     * Gets the storage kinds of all columns with stored values, in column order.
+     *
+     * @return the storage kinds by column name, e.g. "int", "timestamp" or "object"
+     */
+    public Map<String, String> getKindsByColumn() {
+        return kindsByColumn;
+    }
+
+    /**
+     * Gets the bytes used by all columns with stored values, in column order.
+     *
+     * @return the bytes by column name
+     */
+    public Map<String, Long> getBytesByColumn() {
+        return bytesByColumn;
+    }
+
+    /**
+     * Gets the total bytes used, including the record of evaluated fields.
+     *
+     * @return the total bytes
+     */
+    public long getTotalBytes() {
+        long theValue = bookkeepingBytes;
+        for (long bytes : bytesByColumn.values()) {
+            theValue += bytes;
+        }
+        return theValue;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+
+/**
+ * Converts script results into the type of their column, as given by the column's <code>DataType</code>. A converter
+ * is chosen once per column; the common types (character, decimal and timestamp columns) are converted without going
+ * through <code>DataType.typeCast()</code>, all others fall back to it unless the value already has the expected type.
+ */
+@FunctionalInterface
+interface ValueConverter {
+
+    /** Returns all values unchanged, used for columns of unknown type. */
+    ValueConverter IDENTITY = value -> value;
+
+    /**
+     * Converts a script result.
+     *
+     * @param value
+     *            The post-processed result of a script. May be null.
+     *
+     * @return the converted value
+     *
+     * @throws TypeCastException
+     *             if the value can't be converted into the type of the column
+     */
+    Object convert(Object value) throws TypeCastException;
+
+    /**
+     * Gets the converter for the given column, based on its type.
+     *
+     * @param column
+     *            The column. May not be null.
+     *
+     * @return the converter, {@link #IDENTITY} for unknown types
+     */
+    static ValueConverter forColumn(Column column) {
+
+        DataType dataType = column.getDataType();
+        if (dataType == null || dataType == DataType.UNKNOWN) {
+            return IDENTITY;
+        }
+
+        switch (dataType.getSqlType()) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                // e.g. Groovy's GString
+                return value -> value instanceof CharSequence ? value.toString() : typeCast(dataType, value);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return value -> value instanceof Number number ? toBigDecimal(number, column.getColumnName())
+                        : typeCast(dataType, value);
+            case Types.TIMESTAMP:
+                return value -> {
+                    if (value instanceof Timestamp) {
+                        return value;
+                    }
+                    if (value instanceof java.util.Date date) {
+                        return new Timestamp(date.getTime());
+                    }
+                    return value instanceof Calendar calendar ? new Timestamp(calendar.getTimeInMillis())
+                            : typeCast(dataType, value);
+                };
+            default:
+                Class<?> typeClass = dataType.getTypeClass();
+                return value -> typeClass.isInstance(value) ? value : typeCast(dataType, value);
+        }
+    }
+
+    /**
+     * Converts a number into a decimal. Integral types are converted exactly; floating-point values are converted by
+     * their shortest decimal representation, as with <code>BigDecimal.valueOf(double)</code>.
+     *
+     * @param number
+     *            the number
+     * @param columnName
+     *            the name of the column, for error messages
+     *
+     * @return the decimal
+     *
+     * @throws TypeCastException
+     *             if the number is NaN or infinite, or otherwise has no decimal representation
+     */
+    private static BigDecimal toBigDecimal(Number number, String columnName) throws TypeCastException {
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        if (number instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double doubleValue = number.doubleValue();
+            if (!Double.isFinite(doubleValue)) {
+                throw new TypeCastException(
+                        "Value " + number + " of column " + columnName + " isn't a finite number.");
+            }
+            // widening a float would add binary noise digits, so it is taken by its own decimal representation
+            return BigDecimal.valueOf(number instanceof Float ? Double.parseDouble(number.toString()) : doubleValue);
+        }
+        try {
+            // same as DBUnit's typeCast(), which goes through the string representation as well
+            return new BigDecimal(number.toString());
+        } catch (NumberFormatException e) {
+            throw new TypeCastException(
+                    "Value " + number + " of column " + columnName + " can't be converted into a decimal.", e);
+        }
+    }
+
+    /**
+     * Converts a value using the given data type.
+     *
+     * @param dataType
+     *            the data type
+     * @param value
+     *            the value
+     *
+     * @return the converted value
+     *
+     * @throws TypeCastException
+     *             if the value can't be converted
+     */
+    private static Object typeCast(DataType dataType, Object value) throws TypeCastException {
+        return value == null ? null : dataType.typeCast(value);
+    }
+}
@@ -11,6 +11,11 @@ import javax.script.ScriptEngine;
  * set field is executed. This can be used to add commonly used import statements for all scripts of a given language or
  * to post-process the result of a script execution.
  * <p>
+ * Handlers only adding statements which stay in effect once run (e.g. JRuby <code>require</code> statements) should
+ * return them from {@link #getPrelude()} instead of prepending them in {@link #preInvoke(String)}: the prelude is run
+ * into each engine a single time, and the field text can be passed to the engine unchanged. Note that this doesn't work
+ * for statements only affecting the script they are part of, e.g. Groovy imports.
+ * <p>
  * Implementations must define a default constructor, if they shall be used as standard handler for a language.
  */
 public interface ScriptInvocationHandler {
@@ -33,6 +38,17 @@ public interface ScriptInvocationHandler {
      */
     String preInvoke(String script);
 
+    /**
+     * May return a script to be run once into each engine the handler is used with, before any script of a data set is
+     * executed. The preInvoke method of handlers returning a prelude is not called.
+     *
+     * @return The prelude, e.g. commonly used <code>require</code> statements, or null if the handler needs to be
+     *         called for each script.
+     */
+    default String getPrelude() {
+        return null;
+    }
+
     /**
      * Will be called after a script contained in a field of a data set is executed.
      *
@@ -43,6 +59,19 @@ public interface ScriptInvocationHandler {
      */
     Object postInvoke(Object object);
 
+    /**
+     * Whether this handler works with results of any engine of its language, i.e. it doesn't use the engine given to
+     * {@link #setScriptEngine(ScriptEngine)}. With {@link de.gmorling.scriptabledataset.EvaluationMode#PARALLEL},
+     * engines not safe for concurrent use are only pooled if all handlers are engine independent; otherwise the fields
+     * are evaluated sequentially by the engine the handlers are bound to. Engine independent handlers post-process
+     * results on the evaluating thread, so they must be thread-safe.
+     *
+     * @return true, if the handler doesn't depend on the engine; false by default
+     */
+    default boolean isEngineIndependent() {
+        return false;
+    }
+
     /**
      * Makes the scripting engine available to handler implementations.
      *
@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
+import java.util.ServiceLoader.Provider;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,12 +19,19 @@ import org.slf4j.LoggerFactory;
 /**
  * Manages handlers, that shall always executed for scripts in a given language. These standard handlers will be called
  * <b>before</b> any custom handlers in the pre invocation and <b>after</b> any custom handlers in the post invocation.
+ * <p>
+ * Handlers keep state bound to an engine (see
+ * {@link ScriptInvocationHandler#setScriptEngine(javax.script.ScriptEngine)}), so each data set gets instances of its
+ * own from {@link #createStandardHandlersByLanguage(String)}.
  */
 public class StandardHandlerConfig {
 
     /** The standard handlers. */
     private static Map<String, List<ScriptInvocationHandler>> standardHandlers;
 
+    /** The providers of the standard handlers. */
+    private static Map<String, List<Provider<ScriptInvocationHandler>>> standardHandlerProviders;
+
     /**
      * Instantiates a new standard handler config.
      */
@@ -34,10 +42,13 @@ public class StandardHandlerConfig {
     static {
 
         standardHandlers = new HashMap<>();
+        standardHandlerProviders = new HashMap<>();
 
         ServiceLoader<ScriptInvocationHandler> serviceLoader = ServiceLoader.load(ScriptInvocationHandler.class);
         try {
-            for (ScriptInvocationHandler scriptInvocationHandler : serviceLoader) {
+            serviceLoader.stream().forEach(provider -> {
+
+                ScriptInvocationHandler scriptInvocationHandler = provider.get();
 
                 List<ScriptInvocationHandler> handlersForLanguage = standardHandlers
                         .get(scriptInvocationHandler.getLanguageName());
@@ -48,18 +59,23 @@ public class StandardHandlerConfig {
                 }
 
                 handlersForLanguage.add(scriptInvocationHandler);
-            }
+                standardHandlerProviders
+                        .computeIfAbsent(scriptInvocationHandler.getLanguageName(), k -> new ArrayList<>())
+                        .add(provider);
+            });
         } catch (ServiceConfigurationError error) {
             Logger logger = LoggerFactory.getLogger(StandardHandlerConfig.class);
             logger.error(
                     "Loading of standard script invocation handlers failed, most likely due to an unknown handler implementation given in META-INF/services {}",
                     ScriptInvocationHandler.class.getName());
             standardHandlers = Map.of();
+            standardHandlerProviders = Map.of();
         }
     }
 
     /**
-     * Gets the standard handlers by language.
+     * Gets the standard handlers by language. These instances are shared by the whole JVM; use
+     * {@link #createStandardHandlersByLanguage(String)} to get instances which can be bound to an engine.
      *
      * @param language
      *            the language
@@ -72,4 +88,21 @@ public class StandardHandlerConfig {
         }
         return List.of();
     }
+
+    /**
+     * Creates new instances of the standard handlers of a language.
+     *
+     * @param language
+     *            the language
+     *
+     * @return the standard handlers of the language, in registration order
+     */
+    public static List<ScriptInvocationHandler> createStandardHandlersByLanguage(String language) {
+        List<ScriptInvocationHandler> theValue = new ArrayList<>();
+        for (Provider<ScriptInvocationHandler> oneProvider : standardHandlerProviders.getOrDefault(language,
+                List.of())) {
+            theValue.add(oneProvider.get());
+        }
+        return theValue;
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for PrefixMatcher.
+ */
+class PrefixMatcherTest {
+
+    /**
+     * Test that fields without a prefix are rejected.
+     */
+    @Test
+    void literals() {
+        PrefixMatcher<String> matcher = new PrefixMatcher<>(Map.of("jruby:", "jruby", "groovy:", "groovy"));
+
+        assertNull(matcher.match(""));
+        assertNull(matcher.match("Webster Street"));
+        assertNull(matcher.match("jruby"));
+        assertNull(matcher.match("\u00e4groovy:1"));
+    }
+
+    /**
+     * Test that the longest of several matching prefixes wins.
+     */
+    @Test
+    void longestPrefixWins() {
+        PrefixMatcher<String> matcher = new PrefixMatcher<>(
+                Map.of("js:", "short", "js:x:", "long", "\u00e4:", "umlaut"));
+
+        assertEquals("short", matcher.match("js:1+1"));
+        assertEquals("long", matcher.match("js:x:1+1"));
+        assertEquals("umlaut", matcher.match("\u00e4:1+1"));
+    }
+
+    /**
+     * Test that the empty prefix matches any field not matched by another prefix.
+     */
+    @Test
+    void emptyPrefix() {
+        PrefixMatcher<String> matcher = new PrefixMatcher<>(Map.of("", "any", "js:", "js"));
+
+        assertEquals("js", matcher.match("js:1+1"));
+        assertEquals("any", matcher.match("1+1"));
+        assertEquals("any", matcher.match(""));
+    }
+}
@@ -5,34 +5,68 @@
 package de.gmorling.scriptabledataset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import de.gmorling.scriptabledataset.handlers.JRubyImportAddingInvocationHandler;
 import de.gmorling.scriptabledataset.handlers.ScriptInvocationHandler;
 
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.script.ScriptEngine;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.dbunit.DatabaseUnitException;
 import org.dbunit.database.DatabaseConnection;
 import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
 import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.TypeCastException;
+import org.dbunit.dataset.stream.StreamingDataSet;
 import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
+import org.dbunit.dataset.xml.FlatXmlProducer;
 import org.dbunit.operation.DatabaseOperation;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
 
 /**
  * Test for ScriptableDataSet.
@@ -140,6 +174,44 @@ class ScriptableDataSetTest {
         assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
     }
 
+    /**
+     * Test for using GraalJS as scripting language, evaluated in parallel by pooled engines.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void graalJsScript() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("graaljs.xml")),
+                ScriptableDataSetConfig.builder("graal.js", "js:").evaluationMode(EvaluationMode.PARALLEL)
+                        .parallelism(2).build());
+
+        assertTrue(dataSet.getTable("location").getValue(0, "date") instanceof Timestamp);
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+    }
+
+    /**
+     * Test for evaluating scripts row by row on top of a streaming data set.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void streamingDataSet() throws Exception {
+        IDataSet dataSet = new StreamingDataSet(new ScriptableDataSetProducer(
+                new FlatXmlProducer(new InputSource(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml"))),
+                new ScriptableDataSetConfig("groovy", "groovy:")));
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+    }
+
     /**
      * Test for using JRuby and Groovy within one data set file.
      *
@@ -179,6 +251,877 @@ class ScriptableDataSetTest {
         assertNextRow(resultSet, 1, "Webster Street", addDaysToToday(-14));
     }
 
+    /**
+     * Test that handlers given by a provider are instantiated for each data set of a shared configuration.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void handlerProvider() throws Exception {
+        List<String> invocations = new ArrayList<>();
+        AtomicInteger instances = new AtomicInteger();
+
+        ScriptableDataSetConfig config = ScriptableDataSetConfig.builder("groovy", "groovy:")
+                .handlerProvider(() -> new RecordingHandler("h" + instances.incrementAndGet(), invocations)).build();
+
+        for (int i = 0; i < 2; i++) {
+            IDataSet dataSet = new ScriptableDataSet(
+                    new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                    config);
+            dataSet.getTable("location").getValue(0, "num");
+        }
+
+        assertEquals(2, instances.get());
+        assertEquals(List.of("pre h1", "post h1", "pre h2", "post h2"), invocations);
+    }
+
+    /**
+     * Test that handlers are invoked in the same order for every field.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void handlerOrder() throws Exception {
+        List<String> invocations = new ArrayList<>();
+
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").handler(new RecordingHandler("a", invocations))
+                        .handler(new RecordingHandler("b", invocations)).build());
+
+        ITable table = dataSet.getTable("location");
+        table.getValue(0, "num");
+        table.getValue(0, "addr");
+
+        assertEquals(List.of("pre a", "pre b", "post b", "post a", "pre a", "pre b", "post b", "post a"),
+                invocations);
+    }
+
+    /**
+     * Test that upcoming tables are evaluated on look-ahead threads, and that tables are returned in the order of the
+     * wrapped data set in both directions.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void lookAheadIterator() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("lookahead.xml")),
+                Instant.now(), ScriptableDataSetOptions.builder().lookAhead(2).build(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").evaluationMode(EvaluationMode.EAGER).build());
+
+        List<String> tableNames = new ArrayList<>();
+        ITableIterator iterator = dataSet.iterator();
+        while (iterator.next()) {
+            tableNames.add(iterator.getTable().getTableMetaData().getTableName());
+            assertTrue(((String) iterator.getTable().getValue(0, "thread"))
+                    .startsWith("scriptable-dataset-lookahead-"));
+        }
+        assertEquals(List.of("first", "second", "third", "fourth"), tableNames);
+
+        tableNames.clear();
+        ITableIterator reverseIterator = dataSet.reverseIterator();
+        while (reverseIterator.next()) {
+            tableNames.add(reverseIterator.getTableMetaData().getTableName());
+        }
+        assertEquals(List.of("fourth", "third", "second", "first"), tableNames);
+    }
+
+    /**
+     * Test that the look-ahead threads are shared by all data sets, so that their number doesn't grow with the number
+     * of data sets read.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void lookAheadThreadsShared() throws Exception {
+        for (int i = 0; i < SharedExecutors.LOOK_AHEAD_THREADS * 2; i++) {
+            IDataSet dataSet = new ScriptableDataSet(
+                    new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("lookahead.xml")),
+                    Instant.now(), ScriptableDataSetOptions.builder().lookAhead(1).build(),
+                    ScriptableDataSetConfig.builder("groovy", "groovy:").evaluationMode(EvaluationMode.EAGER).build());
+
+            ITableIterator iterator = dataSet.iterator();
+            while (iterator.next()) {
+                iterator.getTable();
+            }
+        }
+
+        long lookAheadThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith(SharedExecutors.LOOK_AHEAD_THREAD_NAME)).count();
+        assertTrue(lookAheadThreads <= SharedExecutors.LOOK_AHEAD_THREADS,
+                "Too many look-ahead threads: " + lookAheadThreads);
+    }
+
+    /**
+     * Test that the prelude of a handler is run into the engine once instead of calling its preInvoke method for each
+     * script, and that the field text is used as compiled script cache key then.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void handlerPrelude() throws Exception {
+        List<String> invocations = new ArrayList<>();
+
+        ScriptableDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                ScriptableDataSetConfig.builder("groovy", "groovy:")
+                        .handler(new RecordingHandler("a", invocations, "answer = 42")).build());
+
+        ITable table = dataSet.getTable("location");
+        assertEquals("teertS retsbeW", table.getValue(0, "addr"));
+        assertEquals("teertS retsbeW", table.getValue(0, "addr"));
+        table.getValue(0, "num");
+
+        assertEquals(List.of("post a", "post a", "post a"), invocations);
+
+        ScriptInvocationPipeline pipeline = dataSet.getRegistry().getPipeline("groovy:");
+        assertEquals(42, pipeline.getEngine().get("answer"));
+        assertNotNull(pipeline.getCompiledScriptCache().getIfPresent("groovy:12/2"));
+    }
+
+    /**
+     * Test that script engines are resolved once per data set and shared by all iterations and configurations of the
+     * same language.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void enginesSharedBetweenIterations() throws Exception {
+        ScriptableDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                new ScriptableDataSetConfig("groovy", "groovy:"), new ScriptableDataSetConfig("groovy", "g:"));
+
+        ScriptEngineRegistry registry = dataSet.getRegistry();
+        assertSame(registry.getEnginesByPrefix().get("groovy:"), registry.getEnginesByPrefix().get("g:"));
+
+        assertEquals("teertS retsbeW", dataSet.getTable("location").getValue(0, "addr"));
+
+        ITableIterator reverseIterator = dataSet.reverseIterator();
+        assertTrue(reverseIterator.next());
+        assertEquals("teertS retsbeW", reverseIterator.getTable().getValue(0, "addr"));
+        assertSame(registry, dataSet.getRegistry());
+    }
+
+    /**
+     * Test that scripts are compiled once and kept in a bounded cache.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void compiledScriptCache() throws Exception {
+        ScriptableDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").compiledScriptCacheSize(2).build());
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+        assertEquals(2, dataSet.getRegistry().getPipeline("groovy:").getCompiledScriptCache().size());
+    }
+
+    /**
+     * Test that materialized evaluation modes evaluate each field only once.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void materializedEvaluation() throws Exception {
+        for (EvaluationMode mode : List.of(EvaluationMode.LAZY, EvaluationMode.EAGER)) {
+            IDataSet dataSet = new ScriptableDataSet(
+                    new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                    ScriptableDataSetConfig.builder("groovy", "groovy:").evaluationMode(mode).build());
+
+            ITableIterator iterator = dataSet.iterator();
+            assertTrue(iterator.next());
+            ScriptableTable table = (ScriptableTable) iterator.getTable();
+
+            assertSame(table.getValue(0, "date"), table.getValue(0, "date"));
+            assertEquals(mode == EvaluationMode.EAGER ? 3 : 1, table.getStoredValueCount());
+        }
+    }
+
+    /**
+     * Test for evaluating the scripts of a table in parallel.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void parallelEvaluation() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder()
+                        .build(ScriptableDataSetTest.class.getResourceAsStream("multiple_languages.xml")),
+                ScriptableDataSetConfig.builder("jruby", "jruby:").evaluationMode(EvaluationMode.PARALLEL)
+                        .parallelism(2).build(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").evaluationMode(EvaluationMode.PARALLEL)
+                        .parallelism(2).build());
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+    }
+
+    /**
+     * Test for evaluating the scripts of a table in batches.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void batchEvaluation() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder()
+                        .build(ScriptableDataSetTest.class.getResourceAsStream("multiple_languages.xml")),
+                ScriptableDataSetConfig.builder("jruby", "jruby:").evaluationMode(EvaluationMode.BATCH).build(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").evaluationMode(EvaluationMode.BATCH)
+                        .batchSize(2).build());
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+    }
+
+    /**
+     * Test that a failing batch script is evaluated again field by field, so that the error names the failing field.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void batchEvaluationFailure() throws Exception {
+        DefaultTable wrapped = new DefaultTable("location",
+                new Column[] { new Column("num", DataType.INTEGER), new Column("addr", DataType.VARCHAR) });
+        wrapped.addRow(new Object[] { "groovy:12/2", "groovy:'Webster Street'.reverse()" });
+        wrapped.addRow(new Object[] { "groovy:1/0", "groovy:'Webster Street'.reverse()" });
+
+        ITable table = new ScriptableTable(wrapped, List.of(ScriptableDataSetConfig.builder("groovy", "groovy:")
+                .evaluationMode(EvaluationMode.BATCH).build()));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> table.getValue(0, "num"));
+        assertTrue(exception.getMessage().contains("groovy:1/0"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("column num, row 1"), exception.getMessage());
+    }
+
+    /**
+     * Test that row bindings can't be combined with batch evaluation, whose combined scripts can't bind the values of
+     * a single row.
+     */
+    @Test
+    void rowBindingsWithBatchEvaluation() {
+        ScriptableDataSetConfig.Builder builder = ScriptableDataSetConfig.builder("groovy", "groovy:")
+                .evaluationMode(EvaluationMode.BATCH).rowBindings(true);
+
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    /**
+     * Test for referring to the row index and other columns of the same row from a script.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void rowBindings() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("rowbindings.xml")),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").evaluationMode(EvaluationMode.EAGER)
+                        .rowBindings(true).build());
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+    }
+
+    /**
+     * Test for relative dates based on a fixed evaluation epoch, folded into a single evaluation.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void evaluationEpoch() throws Exception {
+        Instant epoch = Instant.parse("2020-02-29T12:00:00Z");
+
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("epoch.xml")), epoch,
+                ScriptableDataSetConfig.builder("groovy", "groovy:").constantFolding(true).build());
+
+        ITableIterator iterator = dataSet.iterator();
+        assertTrue(iterator.next());
+        ITable table = iterator.getTable();
+        assertSame(table.getValue(0, "date"), table.getValue(1, "date"));
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", DateUtils.addDays(Date.from(epoch), -14));
+        assertNextRow(resultSet, 6, "teertS retsbeW", DateUtils.addDays(Date.from(epoch), -14));
+    }
+
+    /**
+     * Test that constant folding only reuses results of scripts proven constant or carrying the constant marker.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void constantFoldingMarker() throws Exception {
+        DefaultTable wrapped = new DefaultTable("location",
+                new Column[] { new Column("num", DataType.UNKNOWN), new Column("addr", DataType.UNKNOWN),
+                        new Column("date", DataType.UNKNOWN) });
+        for (int i = 0; i < 2; i++) {
+            wrapped.addRow(new Object[] { "groovy:Math.random()", "groovy:new String('Webster') /*const*/",
+                    "groovy:epoch - 14" });
+        }
+
+        ITable table = new ScriptableDataSet(new DefaultDataSet(wrapped), Instant.now(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").constantFolding(true).constantMarker("/*const*/")
+                        .build())
+                .getTable("location");
+
+        assertNotEquals(table.getValue(0, "num"), table.getValue(1, "num"));
+        assertSame(table.getValue(0, "addr"), table.getValue(1, "addr"));
+        assertSame(table.getValue(0, "date"), table.getValue(1, "date"));
+    }
+
+    /**
+     * Test for converting script results into the types of their columns.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void typedConversion() throws Exception {
+        DefaultTable wrapped = new DefaultTable("location",
+                new Column[] { new Column("num", DataType.DECIMAL), new Column("addr", DataType.VARCHAR),
+                        new Column("date", DataType.TIMESTAMP) });
+        wrapped.addRow(
+                new Object[] { "groovy:2 * 3", "groovy:\"${'Webster Street'.reverse()}\"", "groovy:new Date()" });
+
+        ITable table = new ScriptableTable(wrapped, List.of(new ScriptableDataSetConfig("groovy", "groovy:")));
+
+        assertEquals(new BigDecimal("6"), table.getValue(0, "num"));
+        assertEquals("teertS retsbeW", table.getValue(0, "addr"));
+        assertTrue(table.getValue(0, "date") instanceof Timestamp);
+    }
+
+    /**
+     * Test for converting floating-point results into decimal columns, rejecting values without decimal representation.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void decimalConversion() throws Exception {
+        DefaultTable wrapped = new DefaultTable("location", new Column[] { new Column("num", DataType.DECIMAL) });
+        wrapped.addRow(new Object[] { "groovy:0.1d" });
+        wrapped.addRow(new Object[] { "groovy:0.1f" });
+        wrapped.addRow(new Object[] { "groovy:Double.NaN" });
+        wrapped.addRow(new Object[] { "groovy:Double.POSITIVE_INFINITY" });
+
+        ScriptableTable table = new ScriptableTable(wrapped,
+                List.of(ScriptableDataSetConfig.builder("groovy", "groovy:").build()));
+
+        assertEquals(new BigDecimal("0.1"), table.getValue(0, "num"));
+        assertEquals(new BigDecimal("0.1"), table.getValue(1, "num"));
+        for (int row = 2; row < 4; row++) {
+            int theRow = row;
+            TypeCastException exception = assertThrows(TypeCastException.class, () -> table.getValue(theRow, "num"));
+            assertTrue(exception.getMessage().contains("column num"), exception.getMessage());
+        }
+    }
+
+    /**
+     * Test for storing materialized results of typed columns in primitive arrays.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void columnarStorage() throws Exception {
+        DefaultTable wrapped = new DefaultTable("location",
+                new Column[] { new Column("num", DataType.INTEGER), new Column("addr", DataType.VARCHAR),
+                        new Column("date", DataType.TIMESTAMP) });
+        for (int i = 0; i < 100; i++) {
+            wrapped.addRow(new Object[] { "groovy:" + i, "groovy:'Webster Street'.reverse()", "groovy:new Date()" });
+        }
+
+        ScriptableTable table = new ScriptableTable(wrapped, List.of(ScriptableDataSetConfig
+                .builder("groovy", "groovy:").evaluationMode(EvaluationMode.EAGER).build()));
+        table.evaluateEagerly();
+
+        assertEquals(42, table.getValue(42, "num"));
+        assertTrue(table.getValue(42, "date") instanceof Timestamp);
+
+        StorageFootprint footprint = table.getStorageFootprint();
+        assertEquals(300, footprint.getStoredValueCount());
+        assertEquals(Map.of("num", "int", "addr", "object", "date", "timestamp"), footprint.getKindsByColumn());
+        assertTrue(footprint.getTotalBytes() > 0);
+    }
+
+    /**
+     * Test that engines are only started for prefixes actually used, optionally ahead of time.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void lazyEngineResolution() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").prewarm(true).build(),
+                new ScriptableDataSetConfig("unknown", "unknown:"));
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+    }
+
+    /**
+     * Test that a warmed up engine is shared by data sets for the lifetime of the JVM.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void sharedEngineWarmUp() throws Exception {
+        List<ScriptInvocationHandler> handlers = new ArrayList<>();
+        handlers.add(new JRubyImportAddingInvocationHandler());
+
+        ScriptableDataSetConfig config = ScriptableDataSetConfig.builder("jruby", "jruby:").handlers(handlers)
+                .sharedEngine(true).build().warmUp();
+
+        ScriptableDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("jruby.xml")),
+                config);
+        ScriptableDataSet otherDataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("jruby.xml")),
+                config);
+
+        assertSame(dataSet.getRegistry().getEnginesByPrefix().get("jruby:"),
+                otherDataSet.getRegistry().getEnginesByPrefix().get("jruby:"));
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", addDaysToToday(-14));
+    }
+
+    /**
+     * Test that data sets sharing an engine each see their own epoch.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void sharedEngineEpoch() throws Exception {
+        DefaultTable table = new DefaultTable("location", new Column[] { new Column("date", DataType.TIMESTAMP) });
+        table.addRow(new Object[] { "groovy:epoch" });
+
+        ScriptableDataSetConfig config = ScriptableDataSetConfig.builder("groovy", "groovy:").sharedEngine(true)
+                .build();
+
+        Instant epoch = Instant.parse("2020-02-29T12:00:00Z");
+        Instant otherEpoch = Instant.parse("2021-03-01T12:00:00Z");
+        IDataSet dataSet = new ScriptableDataSet(new DefaultDataSet(table), epoch, config);
+        IDataSet otherDataSet = new ScriptableDataSet(new DefaultDataSet(table), otherEpoch, config);
+
+        ITable scriptableTable = dataSet.getTable("location");
+        ITable otherScriptableTable = otherDataSet.getTable("location");
+
+        assertEquals(epoch, ((Date) scriptableTable.getValue(0, "date")).toInstant());
+        assertEquals(otherEpoch, ((Date) otherScriptableTable.getValue(0, "date")).toInstant());
+        assertEquals(epoch, ((Date) scriptableTable.getValue(0, "date")).toInstant());
+    }
+
+    /**
+     * Test for collecting evaluation metrics through a listener.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void evaluationMetrics() throws Exception {
+        ScriptEvaluationMetrics metrics = new ScriptEvaluationMetrics();
+
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").listener(metrics).build());
+
+        ITable table = dataSet.getTable("location");
+        table.getValue(0, "num");
+        table.getValue(0, "num");
+        table.getValue(0, "addr");
+
+        assertEquals(Map.of("location", 3L), metrics.getEvaluationsByTable());
+        assertEquals(Map.of("location.num", 2L, "location.addr", 1L), metrics.getEvaluationsByColumn());
+        assertEquals(3, metrics.getEvalLatenciesByPrefix().get("groovy:").getCount());
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(2, metrics.getCacheMisses());
+        assertTrue(metrics.getSummary().contains("location.num: 2 evaluations"));
+    }
+
+    /**
+     * Test for the Java Flight Recorder events emitted for script evaluation.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void flightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("scriptable-dataset", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("de.gmorling.scriptabledataset.ScriptExecution").withThreshold(Duration.ZERO);
+            recording.start();
+
+            IDataSet dataSet = new ScriptableDataSet(
+                    new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("groovy.xml")),
+                    new ScriptableDataSetConfig("groovy", "groovy:"));
+            dataSet.getTable("location").getValue(0, "addr");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        assertEquals(1, events.size());
+        assertEquals("groovy:", events.get(0).getString("prefix"));
+        assertEquals("location", events.get(0).getString("tableName"));
+        assertEquals("addr", events.get(0).getString("columnName"));
+    }
+
+    /**
+     * Test for the statistics about scripted fields of a table.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void scriptStatistics() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder()
+                        .build(ScriptableDataSetTest.class.getResourceAsStream("unknownscriptingengine.xml")),
+                new ScriptableDataSetConfig("groovy", "groovy:"), new ScriptableDataSetConfig("jruby", "jruby:"));
+
+        ITableIterator iterator = dataSet.iterator();
+        assertTrue(iterator.next());
+        ScriptableTable table = (ScriptableTable) iterator.getTable();
+
+        assertEquals("12", table.getValue(0, "num"));
+        assertEquals("unknown:DateTime::now() - 14", table.getValue(0, "date"));
+
+        ScriptStatistics statistics = table.getScriptStatistics();
+        assertEquals(1, statistics.getRowCount());
+        assertEquals(0, statistics.getScriptedFieldCount());
+        assertEquals(List.of(), statistics.getScriptedColumns());
+
+        dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder()
+                        .build(ScriptableDataSetTest.class.getResourceAsStream("multiple_languages.xml")),
+                new ScriptableDataSetConfig("groovy", "groovy:"), new ScriptableDataSetConfig("jruby", "jruby:"));
+
+        iterator = dataSet.iterator();
+        assertTrue(iterator.next());
+        statistics = ((ScriptableTable) iterator.getTable()).getScriptStatistics();
+        assertEquals(6, statistics.getScriptedFieldCount());
+        assertEquals(Map.of("groovy", 3, "jruby", 3), statistics.getScriptedFieldsByLanguage());
+        assertEquals(List.of("num", "addr", "date"), statistics.getScriptedColumns());
+    }
+
+    /**
+     * Test that a template row expands into the number of rows given by its generator column, which isn't inserted.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void generatedRows() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("generator.xml")),
+                Instant.now(), ScriptableDataSetOptions.builder().rowGeneratorColumn("rows").build(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").rowBindings(true).build());
+
+        assertEquals(4, dataSet.getTable("location").getRowCount());
+
+        ITableIterator iterator = dataSet.iterator();
+        assertTrue(iterator.next());
+        assertEquals(List.of("num", "addr", "date"),
+                Stream.of(iterator.getTableMetaData().getColumns()).map(Column::getColumnName).toList());
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 1, "Street 1", addDaysToToday(0));
+        assertNextRow(resultSet, 2, "Street 2", addDaysToToday(0));
+        assertNextRow(resultSet, 3, "Street 3", addDaysToToday(0));
+        assertNextRow(resultSet, 100, "Main Street", addDaysToToday(0));
+    }
+
+    /**
+     * Test that row counts which aren't integers within the range of int are rejected instead of being truncated.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void generatedRowsInexactCount() throws Exception {
+        for (String rows : List.of("groovy:1.5", "groovy:4294967297L", "groovy:Double.NaN")) {
+            DefaultTable wrapped = new DefaultTable("location",
+                    new Column[] { new Column("rows", DataType.UNKNOWN), new Column("num", DataType.UNKNOWN) });
+            wrapped.addRow(new Object[] { "groovy:2.0", "groovy:seq" });
+            wrapped.addRow(new Object[] { rows, "groovy:seq" });
+
+            ITable table = new ScriptableDataSet(new DefaultDataSet(wrapped), Instant.now(),
+                    ScriptableDataSetOptions.builder().rowGeneratorColumn("rows").build(),
+                    ScriptableDataSetConfig.builder("groovy", "groovy:").rowBindings(true).build())
+                    .getTable("location");
+
+            RuntimeException exception = assertThrows(RuntimeException.class, table::getRowCount);
+            assertTrue(exception.getMessage().contains("of row 1 of table location"), exception.getMessage());
+        }
+    }
+
+    /**
+     * Test that literal fields are replaced in the same pass as scripts are evaluated.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void literalReplacements() throws Exception {
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("replacements.xml")),
+                Instant.now(),
+                ScriptableDataSetOptions.builder().replacement("[NULL]", null)
+                        .substringReplacement("${street}", "Webster").build(),
+                new ScriptableDataSetConfig("groovy", "groovy:"));
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertTrue(resultSet.next());
+        assertEquals(6, resultSet.getInt(1));
+        assertEquals("Webster Street", resultSet.getString(2));
+        assertNull(resultSet.getObject(3));
+    }
+
+    /**
+     * Test for caching script results across data set loads in a directory.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void resultCache() throws Exception {
+        Instant epoch = Instant.parse("2020-02-29T12:00:00Z");
+        Path directory = Files.createTempDirectory("scriptable-dataset-cache");
+
+        ScriptableDataSetOptions options = ScriptableDataSetOptions.builder().resultCacheDirectory(directory).build();
+
+        ScriptEvaluationMetrics firstMetrics = new ScriptEvaluationMetrics();
+        ITable first = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("epoch.xml")), epoch,
+                options, ScriptableDataSetConfig.builder("groovy", "groovy:").resultCaching(true)
+                        .listener(firstMetrics).build()).getTable("location");
+        assertEquals("teertS retsbeW", first.getValue(1, "addr"));
+        assertEquals(Map.of("location", 6L), firstMetrics.getEvaluationsByTable());
+
+        ScriptEvaluationMetrics secondMetrics = new ScriptEvaluationMetrics();
+        IDataSet dataSet = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("epoch.xml")), epoch,
+                options, ScriptableDataSetConfig.builder("groovy", "groovy:").resultCaching(true)
+                        .listener(secondMetrics).build());
+
+        insertDataSetAndCreateResultSet(dataSet);
+
+        assertNextRow(resultSet, 6, "teertS retsbeW", DateUtils.addDays(Date.from(epoch), -14));
+        assertNextRow(resultSet, 6, "teertS retsbeW", DateUtils.addDays(Date.from(epoch), -14));
+        assertEquals(Map.of(), secondMetrics.getEvaluationsByTable());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path oneFile : files.toList()) {
+                Files.delete(oneFile);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Test that the key of a cached table covers the epoch and the options of the configuration affecting results.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void resultCacheKey() throws Exception {
+        Instant epoch = Instant.parse("2020-02-29T12:00:00Z");
+        Path directory = Files.createTempDirectory("scriptable-dataset-cache");
+
+        assertEquals(6, readCached(directory, epoch, ScriptableDataSetOptions.builder(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:")));
+        assertEquals(0, readCached(directory, epoch, ScriptableDataSetOptions.builder(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:")));
+        assertEquals(6, readCached(directory, epoch.plusSeconds(1), ScriptableDataSetOptions.builder(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:")));
+        assertEquals(6, readCached(directory, epoch, ScriptableDataSetOptions.builder(),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").rowBindings(true)));
+        assertEquals(6, readCached(directory, epoch,
+                ScriptableDataSetOptions.builder().substringReplacement("Street", "Road"),
+                ScriptableDataSetConfig.builder("groovy", "groovy:")));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path oneFile : files.toList()) {
+                Files.delete(oneFile);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Test that cached results keep their types, that tables not using the epoch are read from the cache whatever the
+     * epoch, and that tables with results of unsupported types aren't cached.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void resultCacheRoundTrip() throws Exception {
+        Path directory = Files.createTempDirectory("scriptable-dataset-cache");
+
+        DefaultTable location = new DefaultTable("location", new Column[] { new Column("num", DataType.UNKNOWN),
+                new Column("addr", DataType.UNKNOWN), new Column("price", DataType.UNKNOWN) });
+        location.addRow(new Object[] { "groovy:2 * 3", "groovy:'Webster Street'.reverse()", "groovy:1.5G" });
+        DefaultTable street = new DefaultTable("street", new Column[] { new Column("name", DataType.UNKNOWN) });
+        street.addRow(new Object[] { "groovy:\"Webster ${'Street'}\"" });
+
+        for (int run = 0; run < 2; run++) {
+            ScriptEvaluationMetrics metrics = new ScriptEvaluationMetrics();
+            IDataSet dataSet = new ScriptableDataSet(new DefaultDataSet(new ITable[] { location, street }),
+                    Instant.now(), ScriptableDataSetOptions.builder().resultCacheDirectory(directory).build(),
+                    ScriptableDataSetConfig.builder("groovy", "groovy:").resultCaching(true).listener(metrics).build());
+
+            ITable table = dataSet.getTable("location");
+            assertEquals(6, table.getValue(0, "num"));
+            assertEquals("teertS retsbeW", table.getValue(0, "addr"));
+            assertEquals(new BigDecimal("1.5"), table.getValue(0, "price"));
+            assertEquals("Webster Street", dataSet.getTable("street").getValue(0, "name").toString());
+
+            // the location table is read from the cache by the second run, the street table is always evaluated
+            assertEquals(run == 0 ? Map.of("location", 3L, "street", 1L) : Map.of("street", 1L),
+                    metrics.getEvaluationsByTable());
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> theFiles = files.toList();
+            assertEquals(1, theFiles.size());
+            for (Path oneFile : theFiles) {
+                Files.delete(oneFile);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Reads the location table of a data set with cached results and counts the evaluated scripts.
+     *
+     * @param directory
+     *            the result cache directory
+     * @param epoch
+     *            the epoch
+     * @param options
+     *            the builder of the data set options
+     * @param builder
+     *            the builder of the configuration
+     *
+     * @return the number of evaluated scripts
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    private long readCached(Path directory, Instant epoch, ScriptableDataSetOptions.Builder options,
+            ScriptableDataSetConfig.Builder builder) throws Exception {
+        ScriptEvaluationMetrics metrics = new ScriptEvaluationMetrics();
+        ITable table = new ScriptableDataSet(
+                new FlatXmlDataSetBuilder().build(ScriptableDataSetTest.class.getResourceAsStream("epoch.xml")), epoch,
+                options.resultCacheDirectory(directory).build(),
+                builder.resultCaching(true).listener(metrics).build()).getTable("location");
+        table.getValue(0, "num");
+        return metrics.getEvaluationsByTable().getOrDefault("location", 0L);
+    }
+
+    /**
+     * Stress test for a data set shared by concurrent readers, each inserting it into an H2 database of its own and
+     * reading the shared table of the data set.
+     *
+     * @throws Exception
+     *             In case of any error.
+     */
+    @Test
+    void concurrentReaders() throws Exception {
+        int rowCount = 100;
+        DefaultTable table = new DefaultTable("location", new Column[] { new Column("num", DataType.UNKNOWN),
+                new Column("addr", DataType.UNKNOWN), new Column("date", DataType.UNKNOWN) });
+        for (int row = 0; row < rowCount; row++) {
+            table.addRow(new Object[] { "groovy:" + row + " * 2", "jruby:'Street " + row + "'.reverse",
+                    "groovy:epoch" });
+        }
+
+        IDataSet dataSet = new ScriptableDataSet(new DefaultDataSet(table),
+                ScriptableDataSetConfig.builder("groovy", "groovy:").evaluationMode(EvaluationMode.LAZY).build(),
+                new ScriptableDataSetConfig("jruby", "jruby:"));
+
+        int readers = 8;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int reader = 0; reader < readers; reader++) {
+            String url = "jdbc:h2:mem:reader" + reader;
+            tasks.add(() -> {
+                try (Connection readerConnection = DriverManager.getConnection(url);
+                        Statement readerStatement = readerConnection.createStatement()) {
+                    readerStatement.execute("create table location(num int, addr varchar(40), date timestamp)");
+                    IDatabaseConnection readerDbUnitConnection = new DatabaseConnection(readerConnection);
+
+                    for (int iteration = 0; iteration < 5; iteration++) {
+                        DatabaseOperation.CLEAN_INSERT.execute(readerDbUnitConnection, dataSet);
+
+                        try (ResultSet rs = readerStatement
+                                .executeQuery("select num, addr from location order by num")) {
+                            for (int row = 0; row < rowCount; row++) {
+                                assertTrue(rs.next());
+                                assertEquals(row * 2, rs.getInt(1));
+                                assertEquals(new StringBuilder("Street " + row).reverse().toString(), rs.getString(2));
+                            }
+                        }
+
+                        ITable sharedTable = dataSet.getTable("location");
+                        for (int row = 0; row < rowCount; row++) {
+                            assertEquals(row * 2, sharedTable.getValue(row, "num"));
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            for (Future<Void> oneFuture : executor.invokeAll(tasks)) {
+                oneFuture.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Test for usage of an unknown scripting engine.
      *
@@ -197,6 +1140,76 @@ class ScriptableDataSetTest {
         });
     }
 
+    /**
+     * A handler recording its invocations.
+     */
+    static class RecordingHandler implements ScriptInvocationHandler {
+
+        /** The name. */
+        private final String name;
+
+        /** The invocations. */
+        private final List<String> invocations;
+
+        /** The prelude, or null. */
+        private final String prelude;
+
+        /**
+         * Instantiates a new recording handler.
+         *
+         * @param name
+         *            the name
+         * @param invocations
+         *            the invocations
+         */
+        RecordingHandler(String name, List<String> invocations) {
+            this(name, invocations, null);
+        }
+
+        /**
+         * Instantiates a new recording handler with a prelude.
+         *
+         * @param name
+         *            the name
+         * @param invocations
+         *            the invocations
+         * @param prelude
+         *            the prelude, or null
+         */
+        RecordingHandler(String name, List<String> invocations, String prelude) {
+            this.name = name;
+            this.invocations = invocations;
+            this.prelude = prelude;
+        }
+
+        @Override
+        public String getLanguageName() {
+            return "groovy";
+        }
+
+        @Override
+        public String preInvoke(String script) {
+            invocations.add("pre " + name);
+            return script;
+        }
+
+        @Override
+        public String getPrelude() {
+            return prelude;
+        }
+
+        @Override
+        public Object postInvoke(Object object) {
+            invocations.add("post " + name);
+            return object;
+        }
+
+        @Override
+        public void setScriptEngine(ScriptEngine engine) {
+            // Do nothing
+        }
+    }
+
     /**
      * Insert data set and create result set.
      *
@@ -0,0 +1,95 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2011-2026 Hazendaz
+ */
+package de.gmorling.scriptabledataset.handlers;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.script.ScriptEngine;
+
+import org.graalvm.polyglot.Value;
+
+/**
+ * A <code>ScriptInvocationHandler</code> for GraalJS scripts. The JSR 223 engine of GraalJS returns JavaScript objects
+ * as polyglot maps and lists; this handler converts them into types processable by DBUnit: JavaScript dates become
+ * timestamps, arrays become lists of converted elements and numbers become the smallest fitting Java type.
+ * <p>
+ * The handler is stateless and doesn't use its engine, so engines may be pooled for parallel evaluation.
+ */
+public class GraalJsScriptInvocationHandler implements ScriptInvocationHandler {
+
+    @Override
+    public String getLanguageName() {
+        return "graal.js";
+    }
+
+    @Override
+    public String preInvoke(String script) {
+        return script;
+    }
+
+    @Override
+    public Object postInvoke(Object object) {
+        if (object instanceof Value || object instanceof Map || object instanceof List) {
+            return toJava(Value.asValue(object));
+        }
+        return object;
+    }
+
+    @Override
+    public boolean isEngineIndependent() {
+        return true;
+    }
+
+    @Override
+    public void setScriptEngine(ScriptEngine engine) {
+        // Do nothing
+    }
+
+    /**
+     * Converts a polyglot value into a plain Java object.
+     *
+     * @param value
+     *            the value
+     *
+     * @return the Java object
+     */
+    private static Object toJava(Value value) {
+        if (value.isNull()) {
+            return null;
+        }
+        if (value.isHostObject()) {
+            return value.asHostObject();
+        }
+        if (value.isString()) {
+            return value.asString();
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        if (value.isNumber()) {
+            if (value.fitsInInt()) {
+                return value.asInt();
+            }
+            if (value.fitsInLong()) {
+                return value.asLong();
+            }
+            return value.asDouble();
+        }
+        if (value.isInstant()) {
+            return Timestamp.from(value.asInstant());
+        }
+        if (value.hasArrayElements()) {
+            List<Object> elements = new ArrayList<>();
+            for (long i = 0; i < value.getArraySize(); i++) {
+                elements.add(toJava(value.getArrayElement(i)));
+            }
+            return elements;
+        }
+        return value.as(Object.class);
+    }
+}
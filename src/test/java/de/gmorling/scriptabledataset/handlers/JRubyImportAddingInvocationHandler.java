@@ -18,7 +18,12 @@ public class JRubyImportAddingInvocationHandler implements ScriptInvocationHandl
 
     @Override
     public String preInvoke(String script) {
-        return "require 'bigdecimal'; require 'bigdecimal/math'; include BigMath; " + script;
+        return script;
+    }
+
+    @Override
+    public String getPrelude() {
+        return "require 'bigdecimal'; require 'bigdecimal/math'; include BigMath";
     }
 
     @Override
@@ -10,8 +10,8 @@ import javax.script.ScriptEngine;
 import org.jruby.RubyObject;
 
 /**
- * A <code>ScriptInvocationHandler</code> for JRuby scripts. It adds some commonly used imports to the begin of each
- * script and converts Objects returned by the scripting engine into types processable by DBUnit.
+ * A <code>ScriptInvocationHandler</code> for JRuby scripts. It requires some commonly used libraries once per engine
+ * and converts Objects returned by the scripting engine into types processable by DBUnit.
  */
 public class JRubyScriptInvocationHandler implements ScriptInvocationHandler {
 
@@ -25,7 +25,12 @@ public class JRubyScriptInvocationHandler implements ScriptInvocationHandler {
 
     @Override
     public String preInvoke(String script) {
-        return "require 'date';" + script;
+        return script;
+    }
+
+    @Override
+    public String getPrelude() {
+        return "require 'date'";
     }
 
     @Override